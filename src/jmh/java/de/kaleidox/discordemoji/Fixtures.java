@@ -0,0 +1,83 @@
+package de.kaleidox.discordemoji;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Offline fixtures for the benchmarks.
+ * <p>
+ * The emoji fixture holds 1000 emojis as they are returned by {@link Endpoint#LIST_ALL_EMOJIS}.
+ * Larger catalogs are derived from it by repeating all emojis with shifted IDs and slugs.
+ */
+public final class Fixtures {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Fixtures() {
+        // nope
+    }
+
+    /**
+     * Creates a catalog of emojis of the given size.
+     *
+     * @param size The amount of emojis.
+     *
+     * @return The emojis as a JSON array node.
+     *
+     * @throws IOException If the fixture could not be read.
+     */
+    public static ArrayNode emojiNodes(int size) throws IOException {
+        ArrayNode fixture = (ArrayNode) read("/fixtures/emojis-1k.json");
+        ArrayNode yields = objectMapper.createArrayNode();
+        int stride = fixture.get(fixture.size() - 1).path("id").asInt() + 1;
+
+        for (int copy = 0; yields.size() < size; copy++)
+            for (int i = 0; i < fixture.size() && yields.size() < size; i++) {
+                ObjectNode emoji = fixture.get(i).deepCopy();
+                int id = emoji.path("id").asInt() + copy * stride;
+                String slug = emoji.path("slug").asText();
+
+                emoji.put("id", id);
+                emoji.put("slug", id + slug.substring(slug.indexOf('_')));
+                yields.add(emoji);
+            }
+
+        return yields;
+    }
+
+    /**
+     * Creates a catalog of emojis of the given size, serialized as a response body.
+     *
+     * @param size The amount of emojis.
+     *
+     * @return The response body.
+     *
+     * @throws IOException If the fixture could not be read.
+     */
+    public static byte[] emojis(int size) throws IOException {
+        return objectMapper.writeValueAsBytes(emojiNodes(size));
+    }
+
+    /**
+     * Reads the emoji category fixture.
+     *
+     * @return The categories as a JSON array node.
+     *
+     * @throws IOException If the fixture could not be read.
+     */
+    public static ArrayNode categoryNodes() throws IOException {
+        return (ArrayNode) read("/fixtures/categories.json");
+    }
+
+    private static JsonNode read(String resource) throws IOException {
+        try (InputStream stream = Fixtures.class.getResourceAsStream(resource)) {
+            return objectMapper.readTree(stream);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package de.kaleidox.discordemoji;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.Materializers;
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the parse and materialize step of {@link DiscordEmoji#refreshEmojiCache()} without any network I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RefreshBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        body = Fixtures.emojis(size);
+    }
+
+    @Benchmark
+    public Collection<Emoji> parseAndMaterialize() throws IOException {
+        return DiscordEmoji.readArray(Endpoint.LIST_ALL_EMOJIS, new ByteArrayInputStream(body), Materializers.EMOJI)
+                .publish();
+    }
+}
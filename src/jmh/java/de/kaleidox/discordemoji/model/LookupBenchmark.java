@@ -0,0 +1,95 @@
+package de.kaleidox.discordemoji.model;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.Fixtures;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cache lookups on catalogs of different sizes, with either storage of emojis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LookupBenchmark {
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    @Param({"heap", "compact"})
+    public String storage;
+
+    private int[] ids;
+    private Emoji emoji;
+    private int categoryCount;
+    private int cursor;
+
+    @Setup
+    public void setup() throws IOException {
+        ArrayNode emojis = Fixtures.emojiNodes(size);
+        ArrayNode categories = Fixtures.categoryNodes();
+        Random random = new Random(size);
+
+        Emoji.setCompactStorage(storage.equals("compact"));
+
+        EntityMaterializer.Batch<Emoji> emojiBatch = Materializers.EMOJI.batch();
+        EntityMaterializer.Batch<EmojiCategory> categoryBatch = Materializers.EMOJI_CATEGORY.batch();
+
+        for (int i = 0; i < emojis.size(); i++)
+            emojiBatch.add(emojis.get(i), i);
+        for (int i = 0; i < categories.size(); i++)
+            categoryBatch.add(categories.get(i), i);
+        emojiBatch.publish();
+        categoryBatch.publish();
+
+        ids = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++)
+            ids[i] = emojis.get(random.nextInt(emojis.size())).path("id").asInt();
+
+        emoji = Emoji.getByID(ids[0]).orElseThrow(AssertionError::new);
+        categoryCount = categories.size();
+    }
+
+    @Benchmark
+    public Optional<Emoji> getByID() {
+        return Emoji.getByID(ids[cursor++ & (LOOKUPS - 1)]);
+    }
+
+    @Benchmark
+    public Emoji[] getByIDs() {
+        return Emoji.getByIDs(ids);
+    }
+
+    @Benchmark
+    public String getTitle() {
+        return emoji.getTitle();
+    }
+
+    @Benchmark
+    public int getFaves() {
+        return emoji.getFaves();
+    }
+
+    @Benchmark
+    public EmojiCategory getCategoryByIndex() {
+        return EmojiCategory.getByIndex(cursor++ % categoryCount);
+    }
+
+    @Benchmark
+    public Optional<EmojiCategory> getPossibleCategory() {
+        return emoji.getCategory().getPossibleValue();
+    }
+}
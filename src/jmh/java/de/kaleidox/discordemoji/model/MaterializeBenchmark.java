@@ -0,0 +1,82 @@
+package de.kaleidox.discordemoji.model;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.Fixtures;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the per-element cost of materializing emojis into a batch against a cached catalog of the same emojis.
+ * <p>
+ * {@link #reflectiveDispatch()} adds the elements through a reflective {@code Method.invoke}, like the former
+ * reflective dispatch, as a baseline for {@link #updateUnchanged()}, which does the same work through
+ * {@link Materializers#EMOJI}. Batches are not published, so that only materializing is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MaterializeBenchmark {
+    private static final int SIZE = 1000;
+
+    private ArrayNode original;
+    private ArrayNode changed;
+    private Method add;
+    private boolean toggle;
+
+    @Setup
+    public void setup() throws IOException, NoSuchMethodException {
+        original = Fixtures.emojiNodes(SIZE);
+        changed = original.deepCopy();
+        for (JsonNode emoji : changed)
+            ((ObjectNode) emoji).put("faves", emoji.path("faves").asInt() + 1);
+
+        add = EntityMaterializer.Batch.class.getMethod("add", JsonNode.class, int.class);
+
+        materialize(original).publish();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public EntityMaterializer.Batch<Emoji> updateUnchanged() {
+        return materialize(original);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public EntityMaterializer.Batch<Emoji> updateChanged() {
+        return materialize((toggle = !toggle) ? changed : original);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public EntityMaterializer.Batch<Emoji> reflectiveDispatch() throws Exception {
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.batch();
+
+        for (int i = 0; i < original.size(); i++)
+            add.invoke(batch, original.get(i), i);
+
+        return batch;
+    }
+
+    private static EntityMaterializer.Batch<Emoji> materialize(ArrayNode emojis) {
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.batch();
+
+        for (int i = 0; i < emojis.size(); i++)
+            batch.add(emojis.get(i), i);
+
+        return batch;
+    }
+}
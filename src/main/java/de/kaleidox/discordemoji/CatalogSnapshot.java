@@ -0,0 +1,235 @@
+package de.kaleidox.discordemoji;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiCatalog;
+import de.kaleidox.discordemoji.model.EmojiCategory;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.jetbrains.annotations.Nullable;
+
+/*
+Binary snapshot of all cached catalogs.
+
+All entities are written from one catalog, so that a snapshot never mixes two versions of the cache.
+
+Layout, big-endian:
+    int     magic
+    short   format version
+    long    version of the catalog the snapshot was taken of
+    int     category count, then per category: int index, string name
+    int     pack count, then per pack: int id, string name, description, slug, image, download, int size
+    int     emoji count, then per emoji: int id, string title, slug, image, description, int category,
+            string license, source, int faves, string submitted_by, int width, height, filesize
+    long    CRC32 of all preceding bytes
+A string is an int byte length (-1 for null) followed by UTF-8 bytes.
+*/
+final class CatalogSnapshot {
+    private static final int MAGIC = 0x44454D4A;
+    private static final short VERSION = 2;
+
+    private CatalogSnapshot() {
+        // nope
+    }
+
+    static synchronized void write(Path file) throws IOException {
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+
+        try {
+            CRC32 crc = new CRC32();
+            EmojiCatalog catalog = EmojiCatalog.current();
+
+            try (OutputStream stream = Files.newOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                DataOutputStream checked = new DataOutputStream(new CheckedOutputStream(out, crc));
+
+                checked.writeInt(MAGIC);
+                checked.writeShort(VERSION);
+                checked.writeLong(catalog.getVersion());
+
+                Collection<EmojiCategory> categories = catalog.getEmojiCategories();
+                checked.writeInt(categories.size());
+                for (EmojiCategory category : categories) {
+                    checked.writeInt(category.getIndex());
+                    writeString(checked, category.getName());
+                }
+
+                Collection<EmojiPack> packs = catalog.getEmojiPacks();
+                checked.writeInt(packs.size());
+                for (EmojiPack pack : packs) {
+                    checked.writeInt(pack.getId());
+                    writeString(checked, pack.getName());
+                    writeString(checked, pack.getDescription());
+                    writeString(checked, pack.getSlug());
+                    writeString(checked, pack.getImageUrl() == null ? null : pack.getImageUrl().toExternalForm());
+                    writeString(checked, pack.getDownloadUrl() == null ? null : pack.getDownloadUrl().toExternalForm());
+                    checked.writeInt(pack.getSize());
+                }
+
+                Collection<Emoji> emojis = catalog.getEmojis();
+                checked.writeInt(emojis.size());
+                for (Emoji emoji : emojis) {
+                    checked.writeInt(emoji.getId());
+                    writeString(checked, emoji.getTitle());
+                    writeString(checked, emoji.getSlug());
+                    writeString(checked, emoji.getImageURL() == null ? null : emoji.getImageURL().toExternalForm());
+                    writeString(checked, emoji.getDescription());
+                    checked.writeInt(emoji.getCategory().getPromisedValue());
+                    writeString(checked, emoji.getLicense().orElse(""));
+                    writeString(checked, emoji.getSource().orElse(""));
+                    checked.writeInt(emoji.getFaves());
+                    writeString(checked, emoji.getSubmittedBy());
+                    checked.writeInt(emoji.getWidth().orElse(0));
+                    checked.writeInt(emoji.getHeight().orElse(0));
+                    checked.writeInt(emoji.getFilesize().orElse(0));
+                }
+
+                checked.flush();
+                out.writeLong(crc.getValue());
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static boolean read(Path file) throws IOException {
+        if (!Files.isRegularFile(file))
+            return false;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size < Integer.BYTES + Short.BYTES + Long.BYTES)
+                throw new IOException("Snapshot " + file + " is truncated");
+
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Snapshot " + file + " is too large");
+
+            // read instead of mapped, so that the file is not held open by a mapping until it is garbage collected
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    throw new IOException("Snapshot " + file + " is truncated");
+            buffer.flip();
+
+            ByteBuffer content = buffer.duplicate();
+            CRC32 crc = new CRC32();
+
+            content.limit((int) size - Long.BYTES);
+            crc.update(content);
+
+            if (crc.getValue() != buffer.getLong((int) size - Long.BYTES))
+                throw new IOException("Snapshot " + file + " is corrupted");
+            if (buffer.getInt() != MAGIC)
+                throw new IOException(file + " is not a snapshot");
+            if (buffer.getShort() != VERSION)
+                return false;
+
+            // catalog versions are only meaningful within one process, so the version of the snapshot is not restored
+            buffer.getLong();
+
+            JsonNodeFactory nodes = JsonNodeFactory.instance;
+
+            JsonNode[] categories = new JsonNode[0];
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+                int index = buffer.getInt();
+
+                if (index >= categories.length)
+                    categories = Arrays.copyOf(categories, index + 1);
+                categories[index] = TextNode.valueOf(readString(buffer));
+            }
+            Materializers.EMOJI_CATEGORY.materializeAll(categories);
+
+            EntityMaterializer.Batch<EmojiPack> packs = Materializers.EMOJI_PACK.batch();
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+                ObjectNode pack = nodes.objectNode();
+
+                pack.put("id", buffer.getInt());
+                pack.put("name", readString(buffer));
+                pack.put("description", readString(buffer));
+                pack.put("slug", readString(buffer));
+                pack.put("image", readString(buffer));
+                pack.put("download", readString(buffer));
+                pack.put("amount", buffer.getInt());
+
+                packs.add(pack, 0);
+            }
+            packs.publish();
+
+            EntityMaterializer.Batch<Emoji> emojis = Materializers.EMOJI.batch();
+
+            for (int i = buffer.getInt(); i > 0; i--) {
+                ObjectNode emoji = nodes.objectNode();
+
+                emoji.put("id", buffer.getInt());
+                emoji.put("title", readString(buffer));
+                emoji.put("slug", readString(buffer));
+                emoji.put("image", readString(buffer));
+                emoji.put("description", readString(buffer));
+                emoji.put("category", buffer.getInt());
+                emoji.put("license", readString(buffer));
+                emoji.put("source", readString(buffer));
+                emoji.put("faves", buffer.getInt());
+                emoji.put("submitted_by", readString(buffer));
+                emoji.put("width", buffer.getInt());
+                emoji.put("height", buffer.getInt());
+                emoji.put("filesize", buffer.getInt());
+
+                emojis.add(emoji, 0);
+            }
+            emojis.publish();
+
+            return true;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static @Nullable String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+
+        if (length < 0)
+            return null;
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,105 +1,337 @@
 package de.kaleidox.discordemoji;
 
-import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
+import de.kaleidox.discordemoji.metrics.Metrics;
+import de.kaleidox.discordemoji.model.CatalogListener;
 import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiCatalog;
 import de.kaleidox.discordemoji.model.EmojiCategory;
 import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
 import de.kaleidox.discordemoji.model.PageStats;
+import de.kaleidox.discordemoji.rest.CircuitOpenException;
 import de.kaleidox.discordemoji.rest.Endpoint;
 import de.kaleidox.discordemoji.rest.RestRequestHelper;
+import de.kaleidox.util.Flow;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Facade class for communicating with https://discordemoji.com/
  */
 public final class DiscordEmoji {
-    private static final ObjectMapper objectMapper;
-    private static final Map<Class, Method> getOrCreateMethodMap;
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int MAX_INDEX = 0xFFFF;
+    private static final Endpoint[] CACHED_ENDPOINTS = {
+            Endpoint.LIST_ALL_EMOJIS, Endpoint.LIST_ALL_PACKS, Endpoint.LIST_ALL_CATEGORIES
+    };
+    private static final Map<Endpoint, CompletableFuture<?>> runningRefreshes = new ConcurrentHashMap<>();
+    private static final Map<Endpoint, RefreshStats> refreshStats = new ConcurrentHashMap<>();
+    private static final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DiscordEmoji-Snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    static {
-        objectMapper = new ObjectMapper();
-        getOrCreateMethodMap = new ConcurrentHashMap<>();
+    private static volatile long minRefreshInterval = 0;
+    private static volatile @Nullable Path snapshotFile = null;
+    private static volatile @Nullable Executor parseExecutor = null;
 
-        try {
-            getOrCreateMethodMap.put(Emoji.class,
-                    Emoji.class.getDeclaredMethod("getOrCreate", JsonNode.class));
-            getOrCreateMethodMap.put(EmojiPack.class,
-                    EmojiPack.class.getDeclaredMethod("getOrCreate", JsonNode.class));
-            getOrCreateMethodMap.put(EmojiCategory.class,
-                    EmojiCategory.class.getDeclaredMethod("getOrCreate", JsonNode.class, int.class));
-
-            getOrCreateMethodMap.values().forEach(method -> method.setAccessible(true));
-        } catch (Throwable t) {
-            throw new RuntimeException("Initialization Exception", t);
+    private DiscordEmoji() {
+        // nope
+    }
+
+    /**
+     * Sets the minimum interval between two refreshes of the same cache.
+     * <p>
+     * Any refresh that is requested within this interval after the last successful refresh of the same cache
+     * completes immediately with the currently cached objects. The default interval is {@code 0}.
+     *
+     * @param interval The minimum interval.
+     * @param unit     The time unit of the interval.
+     */
+    public static void setMinimumRefreshInterval(long interval, TimeUnit unit) {
+        minRefreshInterval = unit.toNanos(interval);
+    }
+
+    /**
+     * Sets the executor to publish the parsed responses of cache refreshes on.
+     * <p>
+     * A response is always parsed while it is being received, on the thread of the transport, so that it is never
+     * buffered as a whole and no other thread waits for it; the responses of several endpoints are parsed in parallel
+     * on their own threads of the transport. Once a response was parsed, publishing its entities, notifying the
+     * {@linkplain EmojiCatalog#addListener(CatalogListener) catalog listeners} and materializing the categories
+     * happen on the executor, which frees the thread of the transport for the next response.
+     * By default, and after setting the executor to {@code null}, they happen on the thread of the transport, too.
+     *
+     * @param executor The executor, or null.
+     */
+    public static void setParseExecutor(@Nullable Executor executor) {
+        parseExecutor = executor;
+    }
+
+    /**
+     * Sets the time-to-live of the cache that is filled from the given endpoint, as used by the {@code request*Cache}
+     * methods.
+     * <p>
+     * Once the cached data is older than the soft time-to-live, it is still returned immediately, but a refresh is
+     * started in the background. Only once it is older than the hard time-to-live, the caller has to wait for a
+     * refresh. The defaults are 5 minutes and 1 hour.
+     *
+     * @param endpoint The endpoint of the cache. Must be one of the {@code LIST_ALL_*} endpoints.
+     * @param softTtl  The soft time-to-live.
+     * @param hardTtl  The hard time-to-live. Must not be shorter than the soft time-to-live.
+     * @param unit     The time unit of both values.
+     *
+     * @throws IllegalArgumentException If the endpoint does not fill a cache, or the hard time-to-live is shorter
+     *                                  than the soft time-to-live.
+     */
+    public static void setTimeToLive(Endpoint endpoint, long softTtl, long hardTtl, TimeUnit unit)
+            throws IllegalArgumentException {
+        if (hardTtl < softTtl)
+            throw new IllegalArgumentException("Hard time-to-live must not be shorter than soft time-to-live");
+
+        RefreshStats stats = getRefreshStats(endpoint);
+
+        stats.softTtl = unit.toNanos(softTtl);
+        stats.hardTtl = unit.toNanos(hardTtl);
+    }
+
+    /**
+     * Refreshes the cache that is filled from the given endpoint periodically in the background.
+     * <p>
+     * The next refresh starts after the given period, plus a random delay of up to the given jitter, has passed since
+     * the previous refresh completed. The jitter spreads the refreshes of several processes over time.
+     * Any previous schedule of the endpoint is replaced.
+     *
+     * @param endpoint The endpoint of the cache. Must be one of the {@code LIST_ALL_*} endpoints.
+     * @param period   The period between two refreshes. Must be positive.
+     * @param jitter   The maximum random delay that is added to the period. Must not be negative.
+     * @param unit     The time unit of period and jitter.
+     *
+     * @throws IllegalArgumentException If the endpoint does not fill a cache, the period is not positive, or the
+     *                                  jitter is negative.
+     */
+    public static void scheduleRefresh(Endpoint endpoint, long period, long jitter, TimeUnit unit)
+            throws IllegalArgumentException {
+        if (period <= 0)
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        if (jitter < 0)
+            throw new IllegalArgumentException("Jitter must not be negative: " + jitter);
+
+        RefreshScheduler.schedule(endpoint, refresher(endpoint), unit.toNanos(period), unit.toNanos(jitter));
+    }
+
+    /**
+     * Stops the {@linkplain #scheduleRefresh(Endpoint, long, long, TimeUnit) scheduled refreshes} of the cache that is
+     * filled from the given endpoint.
+     *
+     * @param endpoint The endpoint of the cache.
+     *
+     * @return Whether refreshes were scheduled for the endpoint.
+     */
+    public static boolean cancelScheduledRefresh(Endpoint endpoint) {
+        return RefreshScheduler.cancel(endpoint);
+    }
+
+    /**
+     * Gets the refresh statistics of the cache that is filled from the given endpoint.
+     *
+     * @param endpoint The endpoint of the cache. Must be one of the {@code LIST_ALL_*} endpoints.
+     *
+     * @return The refresh statistics.
+     *
+     * @throws IllegalArgumentException If the endpoint does not fill a cache.
+     */
+    public static RefreshStats getRefreshStats(Endpoint endpoint) throws IllegalArgumentException {
+        refresher(endpoint);
+
+        return refreshStats.computeIfAbsent(endpoint, RefreshStats::new);
+    }
+
+    /**
+     * Sets the file to save a snapshot of all caches to, after every refresh that changed a cache.
+     * Setting the file to {@code null} disables saving snapshots, which is the default.
+     * <p>
+     * Snapshots are saved in the background, so that refreshes do not wait for them. If saving a snapshot fails, the
+     * failure is handed to the uncaught exception handler of the saving thread; the refresh is not affected.
+     *
+     * @param file The snapshot file, or null.
+     */
+    public static void setSnapshotFile(@Nullable Path file) {
+        snapshotFile = file;
+    }
+
+    /**
+     * Saves a snapshot of all caches to the given file.
+     * <p>
+     * The snapshot is written to a temporary file first, which then replaces the given file atomically.
+     *
+     * @param file The snapshot file.
+     *
+     * @throws IOException If the snapshot could not be written.
+     */
+    public static void saveSnapshot(Path file) throws IOException {
+        CatalogSnapshot.write(file);
+    }
+
+    /**
+     * Loads all caches from a snapshot file that was previously {@linkplain #saveSnapshot(Path) saved}.
+     * <p>
+     * Snapshots of an older format version are ignored. Once a snapshot was loaded, the next refresh of every cache
+     * reads the response again, even if it did not change since the last refresh, so that the snapshot never
+     * replaces newer data for good.
+     *
+     * @param file The snapshot file.
+     *
+     * @return Whether a snapshot was loaded.
+     *
+     * @throws IOException If the file could not be read, or is corrupted.
+     */
+    public static boolean loadSnapshot(Path file) throws IOException {
+        if (!CatalogSnapshot.read(file))
+            return false;
+
+        long age = TimeUnit.MILLISECONDS.toNanos(Math.max(0,
+                System.currentTimeMillis() - Files.getLastModifiedTime(file).toMillis()));
+
+        for (Endpoint endpoint : CACHED_ENDPOINTS) {
+            // the validators describe the replaced data, so a 304 would keep the snapshot instead
+            RestRequestHelper.invalidate(endpoint);
+            getRefreshStats(endpoint).loaded(age);
         }
+        return true;
     }
 
-    private DiscordEmoji() {
-        // nope
+    /**
+     * Loads all caches from the given snapshot file, if there is a valid one, and then refreshes all caches in the
+     * background. Afterwards, a new snapshot is {@linkplain #setSnapshotFile(Path) saved to the file} after every
+     * refresh that changed a cache.
+     * <p>
+     * This allows serving cached objects right after startup, before the first refresh has completed.
+     *
+     * @param file The snapshot file.
+     *
+     * @return A future completing when the background refresh is done.
+     */
+    public static CompletableFuture<Void> warmStart(Path file) {
+        try {
+            loadSnapshot(file);
+        } catch (IOException ignored) {
+            // a broken snapshot is replaced by the background refresh
+        }
+
+        setSnapshotFile(file);
+
+        return CompletableFuture.allOf(refreshEmojiCategoryCache(), refreshEmojiPackCache(), refreshEmojiCache());
     }
 
     /**
      * Refreshes the internal cache of Emojis and returns a collection of all cached emojis when done.
+     * <p>
+     * If the list of emojis did not change since the last refresh, it is not downloaded or parsed again.
+     * Emojis that are no longer listed are removed from the cache.
+     * While the {@linkplain RestRequestHelper#isCircuitOpen(Endpoint) circuit} of the endpoint is open, the cached
+     * Emojis are returned without a request, if there are any.
+     * The differences to the previous state are delivered to all registered
+     * {@linkplain EmojiCatalog#addListener(CatalogListener) catalog listeners}.
      *
      * @return A future completing with all cached Emojis.
      */
     public static CompletableFuture<Collection<Emoji>> refreshEmojiCache() {
-        return RestRequestHelper.get(Endpoint.LIST_ALL_EMOJIS)
-                .thenApply(DiscordEmoji::mapNode_rethrow)
-                .thenApply(node -> {
-                    Collection<Emoji> yields = new ArrayList<>();
-
-                    for (JsonNode emoji : node)
-                        yields.add(accessCache_rethrow(Emoji.class, emoji));
-
-                    return yields;
-                });
+        return refresh(Endpoint.LIST_ALL_EMOJIS, Emoji::getAll, () -> fetch(Endpoint.LIST_ALL_EMOJIS,
+                body -> readArray(Endpoint.LIST_ALL_EMOJIS, body, Materializers.EMOJI), Emoji::getAll));
     }
 
     /**
      * Refreshes the internal cache of EmojiPacks and returns a collection of all cached emoji packs when done.
+     * <p>
+     * If the list of emoji packs did not change since the last refresh, it is not downloaded or parsed again.
+     * While the {@linkplain RestRequestHelper#isCircuitOpen(Endpoint) circuit} of the endpoint is open, the cached
+     * EmojiPacks are returned without a request, if there are any.
      *
      * @return A future completing with all cached EmojiPacks.
      */
     public static CompletableFuture<Collection<EmojiPack>> refreshEmojiPackCache() {
-        return RestRequestHelper.get(Endpoint.LIST_ALL_PACKS)
-                .thenApply(DiscordEmoji::mapNode_rethrow)
-                .thenApply(node -> {
-                    Collection<EmojiPack> yields = new ArrayList<>();
-
-                    for (JsonNode emojiPack : node)
-                        yields.add(accessCache_rethrow(EmojiPack.class, emojiPack));
-
-                    return yields;
-                });
+        return refresh(Endpoint.LIST_ALL_PACKS, EmojiPack::getAll, () -> fetch(Endpoint.LIST_ALL_PACKS,
+                body -> readArray(Endpoint.LIST_ALL_PACKS, body, Materializers.EMOJI_PACK), EmojiPack::getAll));
     }
 
     /**
      * Refreshes the internal cache of EmojiCategories and returns a collection of all cached emoji categories when
      * done.
+     * <p>
+     * If the list of emoji categories did not change since the last refresh, it is not downloaded or parsed again.
+     * While the {@linkplain RestRequestHelper#isCircuitOpen(Endpoint) circuit} of the endpoint is open, the cached
+     * EmojiCategories are returned without a request, if there are any.
      *
      * @return A future completing with all cached EmojiCategories.
      */
     public static CompletableFuture<Collection<EmojiCategory>> refreshEmojiCategoryCache() {
-        return RestRequestHelper.get(Endpoint.LIST_ALL_CATEGORIES)
-                .thenApply(DiscordEmoji::mapNode_rethrow)
-                .thenApply(node -> {
-                    Collection<EmojiCategory> yields = new ArrayList<>();
+        return refresh(Endpoint.LIST_ALL_CATEGORIES, EmojiCategory::getAll, () -> fetch(Endpoint.LIST_ALL_CATEGORIES,
+                body -> readIndexed(Endpoint.LIST_ALL_CATEGORIES, body, Materializers.EMOJI_CATEGORY),
+                EmojiCategory::getAll));
+    }
+
+    /**
+     * Returns the cached Emojis without waiting for a refresh, as long as they are younger than the
+     * {@linkplain #setTimeToLive(Endpoint, long, long, TimeUnit) hard time-to-live}.
+     * Once they are older than the soft time-to-live, a refresh is started in the background.
+     *
+     * @return A future completing with all cached Emojis.
+     */
+    public static CompletableFuture<Collection<Emoji>> requestEmojiCache() {
+        return request(Endpoint.LIST_ALL_EMOJIS, Emoji::getAll, DiscordEmoji::refreshEmojiCache);
+    }
 
-                    for (int i = 0; i < node.size(); i++)
-                        yields.add(accessCache_rethrow(EmojiCategory.class, node, i));
+    /**
+     * Returns the cached EmojiPacks without waiting for a refresh, as long as they are younger than the
+     * {@linkplain #setTimeToLive(Endpoint, long, long, TimeUnit) hard time-to-live}.
+     * Once they are older than the soft time-to-live, a refresh is started in the background.
+     *
+     * @return A future completing with all cached EmojiPacks.
+     */
+    public static CompletableFuture<Collection<EmojiPack>> requestEmojiPackCache() {
+        return request(Endpoint.LIST_ALL_PACKS, EmojiPack::getAll, DiscordEmoji::refreshEmojiPackCache);
+    }
 
-                    return yields;
-                });
+    /**
+     * Returns the cached EmojiCategories without waiting for a refresh, as long as they are younger than the
+     * {@linkplain #setTimeToLive(Endpoint, long, long, TimeUnit) hard time-to-live}.
+     * Once they are older than the soft time-to-live, a refresh is started in the background.
+     *
+     * @return A future completing with all cached EmojiCategories.
+     */
+    public static CompletableFuture<Collection<EmojiCategory>> requestEmojiCategoryCache() {
+        return request(Endpoint.LIST_ALL_CATEGORIES, EmojiCategory::getAll, DiscordEmoji::refreshEmojiCategoryCache);
     }
 
     /**
@@ -112,29 +344,357 @@ public final class DiscordEmoji {
                 .thenApply(data -> mapObject_rethrow(data, PageStats.class));
     }
 
-    private static <T> T mapObject_rethrow(String data, Class<T> type) throws RuntimeException {
+    /**
+     * Creates a publisher that requests all Emojis for every subscriber, and emits every Emoji as soon as it was
+     * parsed.
+     * <p>
+     * Emojis are emitted in the order of the response, on the thread that reads the response. The response is only
+     * read as far as the subscriber requested emojis; while the subscriber requests no more emojis, the response is
+     * not read any further, and its thread of the transport waits. The response is always downloaded completely, even
+     * if it did not change since the last refresh.
+     * <p>
+     * The stream only reads: the emitted Emojis are never cached, and the cache, its refresh statistics and its
+     * catalog listeners are not affected by any subscription. Emojis that did not change since the last refresh are
+     * the cached Emojis, though. Use {@link #refreshEmojiCache()} to refresh the cache.
+     *
+     * @return A new publisher of all Emojis.
+     */
+    public static Flow.Publisher<Emoji> streamEmojis() {
+        // the parsed emojis are never published; refreshes of the cache are coalesced by refresh() instead
+        return subscriber -> new EmojiStream(Objects.requireNonNull(subscriber, "subscriber")).start(sink ->
+                RestRequestHelper.get(Endpoint.LIST_ALL_EMOJIS,
+                        body -> readArray(Endpoint.LIST_ALL_EMOJIS, body, Materializers.EMOJI, sink)));
+    }
+
+    /**
+     * Refreshes all caches and requests the page stats at the same time, and completes once all of them are done.
+     * <p>
+     * Every cache is refreshed like by its own {@code refresh*Cache} method; responses are parsed in parallel as they
+     * are received, and published on the {@linkplain #setParseExecutor(Executor) parse executor} if there is one.
+     * <p>
+     * Emojis and their categories are already linked whenever either of them is published, so no linking is left
+     * to do once all refreshes are done; the refreshed catalog is only checked for
+     * {@linkplain RefreshSummary#getOrphanedEmojis() emojis whose category is not cached}.
+     * <p>
+     * The returned future never completes exceptionally. If the refresh of a cache fails, the cache keeps the data of
+     * its last successful refresh, and the failure is reported in the summary.
+     *
+     * @return A future completing with a summary of all refreshes.
+     */
+    public static CompletableFuture<RefreshSummary> refreshAll() {
+        long started = System.nanoTime();
+        CompletableFuture<PageStats> pageStats = requestPageStats();
+        Collection<CompletableFuture<RefreshSummary.Result>> results = Arrays.asList(
+                summarize(Endpoint.LIST_ALL_EMOJIS, started, refreshEmojiCache(), Collection::size),
+                summarize(Endpoint.LIST_ALL_PACKS, started, refreshEmojiPackCache(), Collection::size),
+                summarize(Endpoint.LIST_ALL_CATEGORIES, started, refreshEmojiCategoryCache(), Collection::size),
+                summarize(Endpoint.LIST_WEBSITE_STATS, started, pageStats, stats -> 1));
+
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<Endpoint, RefreshSummary.Result> byEndpoint = new EnumMap<>(Endpoint.class);
+            EmojiCatalog catalog = EmojiCatalog.current();
+            int linked = 0;
+
+            for (CompletableFuture<RefreshSummary.Result> result : results)
+                byEndpoint.put(result.join().getEndpoint(), result.join());
+            for (EmojiCategory category : catalog.getEmojiCategories())
+                linked += catalog.getEmojisByCategory(category.getIndex()).size();
+
+            return new RefreshSummary(byEndpoint, pageStats.isCompletedExceptionally() ? null : pageStats.join(),
+                    catalog.getEmojis().size() - linked, System.nanoTime() - started);
+        });
+    }
+
+    /*
+    Coalesces concurrent refreshes of the same endpoint: every caller that arrives while a refresh is running
+    shares its result instead of starting another download.
+    While the circuit of the endpoint is open, a filled cache is served instead of failing; the failure is still
+    recorded in the refresh stats.
+    */
+    @SuppressWarnings("unchecked")
+    private static <T> CompletableFuture<Collection<T>> refresh(
+            Endpoint endpoint,
+            Supplier<Collection<T>> cached,
+            Supplier<CompletableFuture<Collection<T>>> request
+    ) {
+        RefreshStats stats = getRefreshStats(endpoint);
+        long age = stats.dataAge();
+
+        if (age >= 0 && age < minRefreshInterval)
+            return CompletableFuture.completedFuture(cached.get());
+
+        CompletableFuture<Collection<T>> created = new CompletableFuture<>();
+        CompletableFuture<?> running = runningRefreshes.putIfAbsent(endpoint, created);
+
+        if (running != null)
+            return ((CompletableFuture<Collection<T>>) running).thenApply(Function.identity());
+
+        long started = System.nanoTime();
+
         try {
-            return objectMapper.readValue(data, type);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("JSON Deserialization Exception", e);
+            request.get().whenComplete((result, throwable) -> {
+                if (throwable == null)
+                    stats.succeeded(started);
+                else stats.failed(started, throwable);
+                Metrics.getListener().onRefresh(endpoint, System.nanoTime() - started, throwable == null);
+                runningRefreshes.remove(endpoint, created);
+
+                if (throwable != null && stats.dataAge() >= 0 && isCircuitOpen(throwable))
+                    created.complete(cached.get());
+                else if (throwable != null)
+                    created.completeExceptionally(throwable);
+                else created.complete(result);
+            });
+        } catch (Throwable t) {
+            runningRefreshes.remove(endpoint, created);
+            created.completeExceptionally(t);
+        }
+
+        return created.thenApply(Function.identity());
+    }
+
+    /*
+    Serves the cache while it is younger than the hard TTL, and refreshes it in the background once it is older
+    than the soft TTL. Failures of background refreshes are only recorded in the refresh stats.
+    */
+    private static <T> CompletableFuture<Collection<T>> request(
+            Endpoint endpoint,
+            Supplier<Collection<T>> cached,
+            Supplier<CompletableFuture<Collection<T>>> refresh
+    ) {
+        RefreshStats stats = getRefreshStats(endpoint);
+        long age = stats.dataAge();
+
+        if (age < 0 || age >= stats.hardTtl)
+            return refresh.get();
+        if (age >= stats.softTtl)
+            refresh.get();
+
+        return CompletableFuture.completedFuture(cached.get());
+    }
+
+    /*
+    Requests the endpoint conditionally and reads the response on the thread of the transport, then publishes it on the
+    parse executor if there is one. If the response did not change, the cached entities are returned instead.
+    */
+    private static <T> CompletableFuture<Collection<T>> fetch(
+            Endpoint endpoint,
+            RestRequestHelper.BodyReader<Parsed<T>> reader,
+            Supplier<Collection<T>> cached
+    ) {
+        Executor executor = parseExecutor;
+        CompletableFuture<Optional<Parsed<T>>> parsed = RestRequestHelper.getIfModified(endpoint, reader);
+        Function<Optional<Parsed<T>>, Collection<T>> publish
+                = result -> result.map(DiscordEmoji::publish).orElseGet(cached);
+
+        return executor == null ? parsed.thenApply(publish) : parsed.thenApplyAsync(publish, executor);
+    }
+
+    private static <T> CompletableFuture<RefreshSummary.Result> summarize(
+            Endpoint endpoint,
+            long started,
+            CompletableFuture<T> refresh,
+            ToIntFunction<T> count
+    ) {
+        return refresh.handle((result, throwable) -> {
+            Throwable error = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+
+            return new RefreshSummary.Result(endpoint, System.nanoTime() - started,
+                    error == null ? count.applyAsInt(result) : 0, error);
+        });
+    }
+
+    private static Supplier<CompletableFuture<?>> refresher(Endpoint endpoint) throws IllegalArgumentException {
+        switch (endpoint) {
+            case LIST_ALL_EMOJIS:
+                return DiscordEmoji::refreshEmojiCache;
+            case LIST_ALL_PACKS:
+                return DiscordEmoji::refreshEmojiPackCache;
+            case LIST_ALL_CATEGORIES:
+                return DiscordEmoji::refreshEmojiCategoryCache;
+            default:
+                throw new IllegalArgumentException("Endpoint " + endpoint + " does not fill a cache");
         }
     }
 
-    private static JsonNode mapNode_rethrow(String data) throws RuntimeException {
+    private static <T> Collection<T> publish(Parsed<T> parsed) {
+        return autoSave(parsed.publish());
+    }
+
+    /*
+    Saves the snapshot on its own thread instead of the thread that completed the refresh.
+    */
+    private static <T> T autoSave(T refreshed) {
+        Path file = snapshotFile;
+
+        if (file != null)
+            snapshotWriter.execute(() -> {
+                try {
+                    CatalogSnapshot.write(file);
+                } catch (IOException e) {
+                    Thread thread = Thread.currentThread();
+
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            });
+
+        return refreshed;
+    }
+
+    private static boolean isCircuitOpen(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause())
+            if (cause instanceof CircuitOpenException)
+                return true;
+        return false;
+    }
+
+    private static <T> T mapObject_rethrow(String data, Class<T> type) throws RuntimeException {
         try {
-            return objectMapper.readTree(data);
+            return objectMapper.readValue(data, type);
         } catch (JsonProcessingException e) {
             throw new RuntimeException("JSON Deserialization Exception", e);
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> T accessCache_rethrow(Class<T> type, Object... args) {
-        try {
-            return (T) getOrCreateMethodMap.get(type)
-                    .invoke(null, args);
-        } catch (Throwable t) {
-            throw new RuntimeException("ReflectiveOperationException", t);
+    /*
+    Reads a top-level JSON array of objects token by token.
+    Only the tree of the current element is ever held in memory; it is added to a batch of the materializer and then
+    dropped. The batch is only published once the whole array was read, and the returned result was published; any
+    other top-level value, any element that is not an object and any content after the array fail the whole read,
+    so that a malformed response never replaces the cache with a part of it.
+    Parse and materialize times are only measured while metrics are enabled.
+    */
+    static <T> Parsed<T> readArray(Endpoint endpoint, InputStream body, EntityMaterializer<T> materializer)
+            throws IOException {
+        return readArray(endpoint, body, materializer, null);
+    }
+
+    /*
+    Like above, but hands every entity to the sink as soon as it was added to the batch. Time spent in the sink is
+    neither counted as parse nor as materialize time.
+    */
+    static <T> Parsed<T> readArray(
+            Endpoint endpoint,
+            InputStream body,
+            EntityMaterializer<T> materializer,
+            @Nullable EntitySink<T> sink
+    ) throws IOException {
+        boolean timed = Metrics.isEnabled();
+        long parse = 0, materialize = 0, mark = timed ? System.nanoTime() : 0;
+        EntityMaterializer.Batch<T> batch = materializer.batch();
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+
+            if (token != JsonToken.START_ARRAY)
+                throw new JsonParseException(parser, "Expected an array of " + endpoint + " entities, got " + token);
+
+            for (int i = 0; (token = parser.nextToken()) != JsonToken.END_ARRAY; i++) {
+                if (token != JsonToken.START_OBJECT)
+                    throw new JsonParseException(parser, "Expected an object at index " + i + ", got " + token);
+
+                JsonNode node = objectMapper.readTree(parser);
+                long parsed = timed ? System.nanoTime() : 0;
+                T entity = batch.add(node, i);
+
+                if (timed) {
+                    long materialized = System.nanoTime();
+
+                    parse += parsed - mark;
+                    materialize += materialized - parsed;
+                    mark = materialized;
+                }
+                if (sink != null) {
+                    sink.accept(entity, i);
+                    if (timed)
+                        mark = System.nanoTime();
+                }
+            }
+
+            if ((token = parser.nextToken()) != null)
+                throw new JsonParseException(parser, "Expected the end of the response, got " + token);
         }
+
+        long parseTime = parse + (timed ? System.nanoTime() : 0) - mark, materializeTime = materialize;
+
+        return () -> {
+            long published = timed ? System.nanoTime() : 0;
+            Collection<T> entities = batch.publish();
+
+            if (timed)
+                Metrics.getListener().onParse(endpoint, parseTime,
+                        materializeTime + System.nanoTime() - published);
+            return entities;
+        };
+    }
+
+    /*
+    Reads a small JSON array or object of values, where the index of each value is either its position in the
+    array, or its numeric key in the object. All values are materialized at once, once the result is published.
+    Indexes are kept in arrays, so numeric keys above MAX_INDEX are rejected instead of allocating for them.
+    */
+    static <T> Parsed<T> readIndexed(Endpoint endpoint, InputStream body, EntityMaterializer<T> materializer)
+            throws IOException {
+        long started = System.nanoTime();
+        JsonNode node = objectMapper.readTree(body);
+        JsonNode[] indexed;
+
+        if (node != null && node.isArray()) {
+            indexed = new JsonNode[node.size()];
+            for (int i = 0; i < node.size(); i++)
+                indexed[i] = node.get(i);
+        } else if (node != null && node.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+            indexed = new JsonNode[0];
+            for (int i = 0; fields.hasNext(); i++) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                int index = index(field.getKey(), i);
+
+                if (index >= indexed.length)
+                    indexed = Arrays.copyOf(indexed, index + 1);
+                indexed[index] = field.getValue();
+            }
+        } else throw new JsonParseException(null, "Expected an array or object of " + endpoint + " entities");
+
+        long parseTime = System.nanoTime() - started;
+        JsonNode[] values = indexed;
+
+        return () -> {
+            long parsed = System.nanoTime();
+            Collection<T> materialized = materializer.materializeAll(values);
+
+            Metrics.getListener().onParse(endpoint, parseTime, System.nanoTime() - parsed);
+            return materialized;
+        };
+    }
+
+    /*
+    The index of a field: its key if the key is numeric, otherwise its position.
+    */
+    private static int index(String key, int position) throws JsonParseException {
+        if (!key.matches("\\d+"))
+            return position;
+        if (key.length() > 9 || Integer.parseInt(key) > MAX_INDEX)
+            throw new JsonParseException(null, "Index " + key + " exceeds the maximum index " + MAX_INDEX);
+        return Integer.parseInt(key);
+    }
+
+    /*
+    The entities of a response that was read completely, but not yet published.
+    */
+    @FunctionalInterface
+    interface Parsed<T> {
+        Collection<T> publish();
+    }
+
+    /*
+    Receives every entity of a response while it is being read.
+    */
+    @FunctionalInterface
+    interface EntitySink<T> {
+        void accept(T entity, int index) throws IOException;
     }
 }
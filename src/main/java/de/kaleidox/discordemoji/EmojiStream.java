@@ -0,0 +1,121 @@
+package de.kaleidox.discordemoji;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.util.Flow;
+
+import org.jetbrains.annotations.Nullable;
+
+/*
+One subscription to DiscordEmoji#streamEmojis().
+Emojis are emitted by the thread that reads the response, which waits for demand after every parsed emoji, so that a
+slow subscriber stops the response from being read any further. Cancelling, or requesting a non-positive amount,
+wakes the reading thread, which then aborts the response.
+If a request is retried, the emojis that were already emitted by a previous attempt are skipped, so that the stream
+resumes at the same position.
+*/
+final class EmojiStream implements Flow.Subscription, DiscordEmoji.EntitySink<Emoji> {
+    private final Flow.Subscriber<? super Emoji> subscriber;
+
+    private long demand = 0;
+    private int emitted = 0;
+    private boolean cancelled = false;
+    private @Nullable Throwable failure = null;
+    private volatile @Nullable CompletableFuture<?> request = null;
+
+    EmojiStream(Flow.Subscriber<? super Emoji> subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    void start(Function<DiscordEmoji.EntitySink<Emoji>, CompletableFuture<?>> request) {
+        subscriber.onSubscribe(this);
+
+        synchronized (this) {
+            if (cancelled) {
+                if (failure != null)
+                    subscriber.onError(failure);
+                return;
+            }
+        }
+
+        CompletableFuture<?> started = request.apply(this);
+
+        this.request = started;
+        started.whenComplete((result, throwable) -> finish(throwable));
+    }
+
+    @Override
+    public synchronized void request(long n) {
+        if (cancelled)
+            return;
+
+        if (n <= 0) {
+            failure = new IllegalArgumentException("Requested amount must be positive: " + n);
+            cancelled = true;
+        } else demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+
+        notifyAll();
+    }
+
+    @Override
+    public void cancel() {
+        CompletableFuture<?> request;
+
+        synchronized (this) {
+            cancelled = true;
+            notifyAll();
+            request = this.request;
+        }
+
+        if (request != null)
+            request.cancel(true);
+    }
+
+    @Override
+    public void accept(Emoji emoji, int index) throws IOException {
+        synchronized (this) {
+            if (index < emitted)
+                return;
+
+            try {
+                while (demand == 0 && !cancelled)
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for demand");
+            }
+
+            if (cancelled)
+                throw new CancellationException("Emoji stream was cancelled");
+            if (demand != Long.MAX_VALUE)
+                demand--;
+            emitted++;
+        }
+
+        subscriber.onNext(emoji);
+    }
+
+    private void finish(@Nullable Throwable throwable) {
+        Throwable failure;
+
+        synchronized (this) {
+            if (cancelled && this.failure == null)
+                return;
+
+            failure = this.failure != null ? this.failure : throwable;
+            cancelled = true;
+        }
+
+        if (failure == null)
+            subscriber.onComplete();
+        else subscriber.onError(failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause()
+                : failure);
+    }
+}
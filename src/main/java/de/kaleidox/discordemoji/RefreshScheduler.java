@@ -0,0 +1,95 @@
+package de.kaleidox.discordemoji;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+import org.jetbrains.annotations.Nullable;
+
+/*
+Runs periodic background refreshes on a single daemon thread.
+The thread only starts the refreshes; they run asynchronously like any other refresh. The next refresh of an
+endpoint is scheduled once the previous one completed, so slow refreshes never pile up.
+*/
+final class RefreshScheduler {
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DiscordEmoji-Scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Map<Endpoint, Task> tasks = new ConcurrentHashMap<>();
+
+    private RefreshScheduler() {
+        // nope
+    }
+
+    static void schedule(Endpoint endpoint, Supplier<CompletableFuture<?>> refresh, long period, long jitter) {
+        Task task = new Task(refresh, period, jitter);
+        Task old = tasks.put(endpoint, task);
+
+        if (old != null)
+            old.cancel();
+        task.scheduleNext();
+    }
+
+    static boolean cancel(Endpoint endpoint) {
+        Task task = tasks.remove(endpoint);
+
+        if (task != null)
+            task.cancel();
+        return task != null;
+    }
+
+    private static final class Task {
+        private final Supplier<CompletableFuture<?>> refresh;
+        private final long period;
+        private final long jitter;
+
+        private boolean cancelled = false;
+        private @Nullable ScheduledFuture<?> next = null;
+
+        private Task(Supplier<CompletableFuture<?>> refresh, long period, long jitter) {
+            this.refresh = refresh;
+            this.period = period;
+            this.jitter = jitter;
+        }
+
+        /*
+        Checks for cancellation under the same lock as cancel(), so that a refresh completing concurrently to the
+        cancellation cannot schedule another one after the cancellation.
+        */
+        private synchronized void scheduleNext() {
+            if (cancelled)
+                return;
+
+            long delay = period + (jitter > 0 ? ThreadLocalRandom.current().nextLong(jitter + 1) : 0);
+
+            next = executor.schedule(this::run, delay, TimeUnit.NANOSECONDS);
+        }
+
+        /*
+        Failures are recorded in the refresh stats of the endpoint; the schedule continues regardless.
+        */
+        private void run() {
+            try {
+                refresh.get().whenComplete((result, throwable) -> scheduleNext());
+            } catch (Throwable t) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            if (next != null)
+                next.cancel(false);
+        }
+    }
+}
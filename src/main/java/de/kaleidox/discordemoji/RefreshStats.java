@@ -0,0 +1,131 @@
+package de.kaleidox.discordemoji;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Live statistics about the refreshes of the cache that is filled from one {@link Endpoint}.
+ * <p>
+ * Obtained by {@link DiscordEmoji#getRefreshStats(Endpoint)}; the values always reflect the latest refresh.
+ */
+public final class RefreshStats {
+    private static final long DEFAULT_SOFT_TTL = TimeUnit.MINUTES.toNanos(5);
+    private static final long DEFAULT_HARD_TTL = TimeUnit.HOURS.toNanos(1);
+
+    private final Endpoint endpoint;
+
+    private volatile boolean refreshed = false;
+    private volatile long lastSuccess = 0;
+    private volatile long lastDuration = -1;
+    private volatile @Nullable Throwable lastFailure = null;
+    private volatile int consecutiveFailures = 0;
+
+    volatile long softTtl = DEFAULT_SOFT_TTL;
+    volatile long hardTtl = DEFAULT_HARD_TTL;
+
+    RefreshStats(Endpoint endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Gets the endpoint of the cache.
+     *
+     * @return The endpoint.
+     */
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Gets the time since the cached data was last confirmed to be current, either by a successful refresh or by
+     * loading a snapshot, in which case the age of the snapshot counts.
+     *
+     * @param unit The time unit of the result.
+     *
+     * @return The age of the cached data, or {@code -1} if the cache was never filled.
+     */
+    public long getDataAge(TimeUnit unit) {
+        return refreshed ? unit.convert(System.nanoTime() - lastSuccess, TimeUnit.NANOSECONDS) : -1;
+    }
+
+    /**
+     * Gets the duration of the last completed refresh, whether it succeeded or not.
+     *
+     * @param unit The time unit of the result.
+     *
+     * @return The duration of the last refresh, or {@code -1} if no refresh has completed yet.
+     */
+    public long getLastRefreshDuration(TimeUnit unit) {
+        long duration = lastDuration;
+
+        return duration < 0 ? -1 : unit.convert(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the failure of the last refresh, if it failed.
+     *
+     * @return The failure of the last refresh.
+     */
+    public Optional<Throwable> getLastFailure() {
+        return consecutiveFailures == 0 ? Optional.empty() : Optional.ofNullable(lastFailure);
+    }
+
+    /**
+     * Gets the amount of refreshes that failed since the last successful one.
+     *
+     * @return The amount of consecutive failures.
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Whether the cached data is older than the {@linkplain DiscordEmoji#setTimeToLive(Endpoint, long, long, TimeUnit)
+     * soft time-to-live}, or was never loaded.
+     *
+     * @return Whether the cached data is stale.
+     */
+    public boolean isStale() {
+        return !refreshed || System.nanoTime() - lastSuccess >= softTtl;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RefreshStats(endpoint:%s,age:%dms,duration:%dms,failures:%d)", endpoint,
+                getDataAge(TimeUnit.MILLISECONDS), getLastRefreshDuration(TimeUnit.MILLISECONDS), consecutiveFailures);
+    }
+
+    /*
+    The age of the data in nanoseconds, or -1.
+    */
+    long dataAge() {
+        return refreshed ? System.nanoTime() - lastSuccess : -1;
+    }
+
+    void succeeded(long started) {
+        long now = System.nanoTime();
+
+        lastDuration = now - started;
+        lastSuccess = now;
+        consecutiveFailures = 0;
+        refreshed = true;
+    }
+
+    void failed(long started, Throwable failure) {
+        lastDuration = System.nanoTime() - started;
+        lastFailure = failure;
+        consecutiveFailures++;
+    }
+
+    void loaded(long age) {
+        if (refreshed && dataAge() <= age)
+            return;
+
+        lastSuccess = System.nanoTime() - age;
+        refreshed = true;
+    }
+}
@@ -0,0 +1,167 @@
+package de.kaleidox.discordemoji;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.model.PageStats;
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The outcome of a {@linkplain DiscordEmoji#refreshAll() refresh of all endpoints}.
+ * <p>
+ * Every endpoint is refreshed independently; if the refresh of one endpoint failed, its cache keeps the data of its
+ * last successful refresh, and the failure is reported here.
+ */
+public final class RefreshSummary {
+    private final Map<Endpoint, Result> results;
+    private final @Nullable PageStats pageStats;
+    private final int orphanedEmojis;
+    private final long duration;
+
+    RefreshSummary(Map<Endpoint, Result> results, @Nullable PageStats pageStats, int orphanedEmojis, long duration) {
+        this.results = results;
+        this.pageStats = pageStats;
+        this.orphanedEmojis = orphanedEmojis;
+        this.duration = duration;
+    }
+
+    /**
+     * Gets the results of all refreshed endpoints.
+     *
+     * @return A new collection of the results, in the order of the endpoints.
+     */
+    public Collection<Result> getResults() {
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * Gets the result of one endpoint.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The result of the endpoint, or null if it was not refreshed.
+     */
+    public @Nullable Result getResult(Endpoint endpoint) {
+        return results.get(endpoint);
+    }
+
+    /**
+     * Whether the refreshes of all endpoints succeeded.
+     *
+     * @return Whether the refresh was complete.
+     */
+    public boolean isComplete() {
+        return results.values().stream().allMatch(Result::isSuccess);
+    }
+
+    /**
+     * Gets the page stats that were requested along with the caches.
+     *
+     * @return The page stats, if they could be requested.
+     */
+    public Optional<PageStats> getPageStats() {
+        return Optional.ofNullable(pageStats);
+    }
+
+    /**
+     * Gets the amount of cached emojis whose category is not cached, checked once all refreshes completed.
+     * Such emojis are linked to their category as soon as a later refresh caches it.
+     *
+     * @return The amount of emojis without a cached category.
+     */
+    public int getOrphanedEmojis() {
+        return orphanedEmojis;
+    }
+
+    /**
+     * Gets the duration of the whole refresh, until its slowest endpoint completed.
+     *
+     * @param unit The time unit of the result.
+     *
+     * @return The duration.
+     */
+    public long getDuration(TimeUnit unit) {
+        return unit.convert(duration, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RefreshSummary(duration:%dms,orphans:%d,results:%s)",
+                getDuration(TimeUnit.MILLISECONDS), orphanedEmojis, results.values());
+    }
+
+    /**
+     * The outcome of the refresh of one endpoint.
+     */
+    public static final class Result {
+        private final Endpoint endpoint;
+        private final long duration;
+        private final int count;
+        private final @Nullable Throwable error;
+
+        Result(Endpoint endpoint, long duration, int count, @Nullable Throwable error) {
+            this.endpoint = endpoint;
+            this.duration = duration;
+            this.count = count;
+            this.error = error;
+        }
+
+        /**
+         * Gets the refreshed endpoint.
+         *
+         * @return The endpoint.
+         */
+        public Endpoint getEndpoint() {
+            return endpoint;
+        }
+
+        /**
+         * Gets the duration of the refresh of the endpoint, including downloading and parsing.
+         *
+         * @param unit The time unit of the result.
+         *
+         * @return The duration.
+         */
+        public long getDuration(TimeUnit unit) {
+            return unit.convert(duration, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Gets the amount of cached entities of the endpoint after the refresh.
+         *
+         * @return The amount of entities, or {@code 0} if the refresh failed.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the failure of the refresh.
+         *
+         * @return The failure, if the refresh failed.
+         */
+        public Optional<Throwable> getError() {
+            return Optional.ofNullable(error);
+        }
+
+        /**
+         * Whether the refresh succeeded.
+         *
+         * @return Whether the refresh succeeded.
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Result(endpoint:%s,duration:%dms,count:%d,error:%s)", endpoint,
+                    getDuration(TimeUnit.MILLISECONDS), count, error);
+        }
+    }
+}
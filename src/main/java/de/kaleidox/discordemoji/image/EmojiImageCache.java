@@ -0,0 +1,401 @@
+package de.kaleidox.discordemoji.image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+import de.kaleidox.discordemoji.rest.Transport;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A content-addressed disk cache for the images of {@link Emoji}s.
+ * <p>
+ * Images are downloaded through the current {@linkplain RestRequestHelper#getTransport() transport}, with at most
+ * {@linkplain #setMaxConcurrentDownloads(int) a limited amount} of downloads running at the same time.
+ * Response bodies are streamed into the cache directory through a {@link FileChannel} without ever being held on
+ * the heap as a whole, and are stored under the SHA-256 hash of their content, so identical images of different
+ * emojis are stored only once. If the API reported a {@linkplain Emoji#getFilesize() file size} for an emoji, the
+ * downloaded image must have exactly that size.
+ * <p>
+ * Cached images survive restarts; an image is only downloaded again once the image URL of its emoji changes.
+ * Cached images can be sent {@linkplain #transferTo(Emoji, WritableByteChannel) directly from disk} to any channel.
+ * <p>
+ * The layout of the cache directory is:
+ * <pre>
+ *     objects/&lt;first two hash digits&gt;/&lt;hash&gt;   the image files
+ *     urls/&lt;hash of the image URL&gt;             the content hash of the image of a URL
+ * </pre>
+ */
+public final class EmojiImageCache {
+    /**
+     * The default amount of downloads that may run at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+
+    private final Path directory;
+    private final Map<String, Path> resolved = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Path>> downloads = new ConcurrentHashMap<>();
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+
+    private int maxConcurrentDownloads = DEFAULT_MAX_CONCURRENT_DOWNLOADS;
+    private int runningDownloads = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param directory The directory to store the images in. It is created if it does not exist.
+     *
+     * @throws IOException If the directory could not be created.
+     */
+    public EmojiImageCache(Path directory) throws IOException {
+        this.directory = directory;
+
+        Files.createDirectories(directory.resolve("objects"));
+        Files.createDirectories(directory.resolve("urls"));
+        Files.createDirectories(directory.resolve("tmp"));
+    }
+
+    /**
+     * Sets the amount of downloads that may run at the same time.
+     * Any further download is queued until a running download has completed.
+     *
+     * @param maxConcurrentDownloads The amount of concurrent downloads. Must be positive.
+     */
+    public void setMaxConcurrentDownloads(int maxConcurrentDownloads) {
+        if (maxConcurrentDownloads < 1)
+            throw new IllegalArgumentException("maxConcurrentDownloads < 1: " + maxConcurrentDownloads);
+
+        synchronized (queue) {
+            this.maxConcurrentDownloads = maxConcurrentDownloads;
+        }
+        startQueued();
+    }
+
+    /**
+     * Gets the cached image of the given emoji, if it has been downloaded before.
+     * This method never downloads anything.
+     *
+     * @param emoji The emoji.
+     *
+     * @return The path of the cached image, or null if the image is not cached.
+     */
+    public @Nullable Path getCached(Emoji emoji) {
+        URL url = emoji.getImageURL();
+
+        return url == null ? null : lookup(url.toExternalForm());
+    }
+
+    /**
+     * Fetches the image of the given emoji.
+     * <p>
+     * If the image is cached, the returned future is already completed. Concurrent fetches of the same image share
+     * one download.
+     *
+     * @param emoji The emoji to fetch the image of.
+     *
+     * @return A future completing with the path of the cached image, or exceptionally if the download failed or the
+     * downloaded image does not match the file size reported by the API.
+     */
+    public CompletableFuture<Path> fetch(Emoji emoji) {
+        URL url = emoji.getImageURL();
+
+        if (url == null) {
+            CompletableFuture<Path> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException(emoji + " has no image"));
+            return failed;
+        }
+
+        String key = url.toExternalForm();
+        Path cached = lookup(key);
+
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> running = downloads.putIfAbsent(key, created);
+
+        if (running != null)
+            return running.thenApply(path -> path);
+
+        enqueue(() -> download(url, emoji.getFilesize()), created);
+        created.whenComplete((path, throwable) -> downloads.remove(key, created));
+
+        return created.thenApply(path -> path);
+    }
+
+    /**
+     * Fetches the images of all given emojis.
+     * Emojis without an image are skipped.
+     *
+     * @param emojis The emojis to fetch the images of.
+     *
+     * @return A future completing with the paths of the cached images by their emoji once all downloads completed,
+     * or exceptionally if any download failed.
+     */
+    public CompletableFuture<Map<Emoji, Path>> fetchAll(Collection<Emoji> emojis) {
+        Map<Emoji, CompletableFuture<Path>> futures = new LinkedHashMap<>();
+
+        for (Emoji emoji : emojis)
+            if (emoji.getImageURL() != null)
+                futures.put(emoji, fetch(emoji));
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0]))
+                .thenApply(nothing -> {
+                    Map<Emoji, Path> yields = new LinkedHashMap<>();
+                    futures.forEach((emoji, future) -> yields.put(emoji, future.join()));
+                    return Collections.unmodifiableMap(yields);
+                });
+    }
+
+    /**
+     * Fetches the image of the given emoji and transfers it to the given channel.
+     * <p>
+     * The image is transferred directly from the file system cache where the platform supports it, for example
+     * into a socket, without being copied onto the heap.
+     *
+     * @param emoji  The emoji to transfer the image of.
+     * @param target The channel to transfer the image to.
+     *
+     * @return A future completing with the amount of transferred bytes.
+     */
+    public CompletableFuture<Long> transferTo(Emoji emoji, WritableByteChannel target) {
+        return fetch(emoji).thenApply(path -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                long position = 0;
+
+                while (position < size)
+                    position += channel.transferTo(position, size - position, target);
+
+                return position;
+            } catch (IOException e) {
+                throw new RuntimeException("TransferException", e);
+            }
+        });
+    }
+
+    /*
+    Resolves an image URL to its cached file, first from memory and then from the persisted URL index.
+    */
+    private @Nullable Path lookup(String url) {
+        Path path = resolved.get(url);
+
+        if (path != null && Files.isRegularFile(path))
+            return path;
+
+        try {
+            Path link = directory.resolve("urls").resolve(hash(url.getBytes(StandardCharsets.UTF_8)));
+
+            if (!Files.isRegularFile(link))
+                return null;
+
+            path = object(new String(Files.readAllBytes(link), StandardCharsets.US_ASCII).trim());
+        } catch (IOException e) {
+            return null;
+        }
+
+        if (!Files.isRegularFile(path))
+            return null;
+
+        resolved.put(url, path);
+        return path;
+    }
+
+    private CompletableFuture<Path> download(URL url, OptionalInt filesize) {
+        Transport transport = RestRequestHelper.getTransport();
+
+        return transport.get(url, Collections.emptyMap(), response -> {
+            if (response.getCode() != 200)
+                throw new IOException("Unexpected response status " + response.getCode() + " for " + url);
+
+            MessageDigest digest = digest();
+            Path temp = receive(response.getBody(), digest);
+
+            try {
+                long size = Files.size(temp);
+
+                if (!matches(filesize, size))
+                    throw new IOException("Image " + url + " has " + size + " bytes, "
+                            + "but the API reported " + filesize.getAsInt() + " bytes");
+
+                String hash = commit(temp, digest);
+                link(url.toExternalForm(), hash);
+
+                return object(hash);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        });
+    }
+
+    /*
+    Stores an image that was obtained elsewhere, such as from an emoji pack archive. The image URL of the emoji is
+    linked to the stored image only if the size of the image matches the file size reported by the API.
+    */
+    Path store(InputStream content, @Nullable Emoji emoji) throws IOException {
+        MessageDigest digest = digest();
+        Path temp = receive(content, digest);
+
+        try {
+            long size = Files.size(temp);
+            String hash = commit(temp, digest);
+
+            if (emoji != null && emoji.getImageURL() != null && matches(emoji.getFilesize(), size))
+                link(emoji.getImageURL().toExternalForm(), hash);
+
+            return object(hash);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /*
+    Streams the content into a new temporary file through a FileChannel, updating the digest on the way.
+    */
+    private Path receive(InputStream content, MessageDigest digest) throws IOException {
+        Path temp = Files.createTempFile(directory.resolve("tmp"), "image", ".tmp");
+
+        try (InputStream body = new DigestInputStream(content, digest);
+             ReadableByteChannel source = Channels.newChannel(body);
+             FileChannel file = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            long size = 0;
+
+            for (long transferred; (transferred = file.transferFrom(source, size, Long.MAX_VALUE)) > 0; )
+                size += transferred;
+
+            return temp;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /*
+    Moves a received file to its content address, unless an identical image is already stored there.
+    */
+    private String commit(Path temp, MessageDigest digest) throws IOException {
+        String hash = hex(digest.digest());
+        Path path = object(hash);
+
+        Files.createDirectories(path.getParent());
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // identical image is already cached
+        }
+
+        return hash;
+    }
+
+    private void link(String url, String hash) throws IOException {
+        Path link = directory.resolve("urls").resolve(hash(url.getBytes(StandardCharsets.UTF_8)));
+        Path temp = Files.createTempFile(directory.resolve("tmp"), "url", ".tmp");
+
+        try {
+            Files.write(temp, hash.getBytes(StandardCharsets.US_ASCII));
+            Files.move(temp, link, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        resolved.put(url, object(hash));
+    }
+
+    private Path object(String hash) {
+        return directory.resolve("objects").resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /*
+    Runs the download once fewer than the maximum amount of downloads are running, and completes the target with it.
+    */
+    private void enqueue(Supplier<CompletableFuture<Path>> download, CompletableFuture<Path> target) {
+        synchronized (queue) {
+            queue.add(() -> {
+                try {
+                    download.get().whenComplete((path, throwable) -> {
+                        finished();
+
+                        if (throwable != null)
+                            target.completeExceptionally(throwable);
+                        else target.complete(path);
+                    });
+                } catch (Throwable t) {
+                    finished();
+                    target.completeExceptionally(t);
+                }
+            });
+        }
+        startQueued();
+    }
+
+    private void finished() {
+        synchronized (queue) {
+            runningDownloads--;
+        }
+        startQueued();
+    }
+
+    private void startQueued() {
+        Runnable next;
+
+        while (true) {
+            synchronized (queue) {
+                if (runningDownloads >= maxConcurrentDownloads || (next = queue.poll()) == null)
+                    return;
+                runningDownloads++;
+            }
+            next.run();
+        }
+    }
+
+    private static boolean matches(OptionalInt filesize, long size) {
+        return !filesize.isPresent() || filesize.getAsInt() <= 0 || filesize.getAsInt() == size;
+    }
+
+    private static String hash(byte[] bytes) {
+        return hex(digest().digest(bytes));
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes)
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+
+        return hex.toString();
+    }
+}
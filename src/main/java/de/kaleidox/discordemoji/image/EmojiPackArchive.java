@@ -0,0 +1,201 @@
+package de.kaleidox.discordemoji.image;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the contents of the ZIP archive of an {@link EmojiPack}.
+ * <p>
+ * The archive is decoded while it is being downloaded; every file is handed to the caller as soon as it has arrived,
+ * and the archive is never buffered as a whole. Files are matched to the cached {@link Emoji}s by their name,
+ * which yields the emojis a pack consists of.
+ *
+ * @see EmojiPack#getDownloadUrl()
+ */
+public final class EmojiPackArchive {
+    private EmojiPackArchive() {
+        // nope
+    }
+
+    /**
+     * Downloads the archive of the given emoji pack and hands every file in it to the given sink, in archive order.
+     *
+     * @param pack The emoji pack to download.
+     * @param sink The sink to hand the files to.
+     *
+     * @return A future completing with all emojis that files of the archive were matched to.
+     */
+    public static CompletableFuture<Collection<Emoji>> read(EmojiPack pack, EntrySink sink) {
+        URL url = pack.getDownloadUrl();
+
+        if (url == null) {
+            CompletableFuture<Collection<Emoji>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException(pack + " has no download"));
+            return failed;
+        }
+
+        return RestRequestHelper.getTransport().get(url, Collections.emptyMap(), response -> {
+            if (response.getCode() != 200)
+                throw new IOException("Unexpected response status " + response.getCode() + " for " + url);
+
+            return read(response.getBody(), sink);
+        });
+    }
+
+    /**
+     * Downloads the archive of the given emoji pack and stores every file in it in the given image cache.
+     * <p>
+     * Every file that is matched to an emoji becomes its cached image, unless its size differs from the
+     * {@linkplain Emoji#getFilesize() file size} reported by the API.
+     *
+     * @param pack  The emoji pack to download.
+     * @param cache The image cache to store the files in.
+     *
+     * @return A future completing with all emojis that files of the archive were matched to.
+     */
+    public static CompletableFuture<Collection<Emoji>> extractTo(EmojiPack pack, EmojiImageCache cache) {
+        return read(pack, (entry, content) -> cache.store(content, entry.getEmoji().orElse(null)));
+    }
+
+    /**
+     * Reads a ZIP archive of an emoji pack from the given stream and hands every file in it to the given sink,
+     * in archive order. The stream is not closed.
+     *
+     * @param archive The archive stream.
+     * @param sink    The sink to hand the files to.
+     *
+     * @return All emojis that files of the archive were matched to.
+     *
+     * @throws IOException If the archive could not be read, or the sink threw an exception.
+     */
+    public static Collection<Emoji> read(InputStream archive, EntrySink sink) throws IOException {
+        ZipInputStream zip = new ZipInputStream(archive);
+        InputStream content = new FilterInputStream(zip) {
+            @Override
+            public void close() {
+                // the sink must not close the archive
+            }
+        };
+        Collection<Emoji> yields = new LinkedHashSet<>();
+        ZipEntry zipEntry;
+
+        while ((zipEntry = zip.getNextEntry()) != null) {
+            if (zipEntry.isDirectory())
+                continue;
+
+            Entry entry = new Entry(zipEntry.getName(), zipEntry.getSize(), match(zipEntry.getName()));
+
+            sink.accept(entry, content);
+            zip.closeEntry();
+            entry.getEmoji().ifPresent(yields::add);
+        }
+
+        return new ArrayList<>(yields);
+    }
+
+    /*
+    Matches the base name of an archive file to an emoji; first by slug, then by title ignoring case, treating
+    underscores and dashes as spaces.
+    */
+    private static @Nullable Emoji match(String path) {
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        int extension = name.lastIndexOf('.');
+
+        if (extension > 0)
+            name = name.substring(0, extension);
+        if (name.isEmpty())
+            return null;
+
+        Optional<Emoji> bySlug = Emoji.getBySlug(name);
+
+        if (bySlug.isPresent())
+            return bySlug.get();
+
+        for (String title : new String[]{name, name.replace('_', ' ').replace('-', ' ')})
+            for (Emoji emoji : Emoji.getByTitlePrefix(title))
+                if (emoji.getTitle().equalsIgnoreCase(title))
+                    return emoji;
+
+        return null;
+    }
+
+    /**
+     * A file in the archive of an emoji pack.
+     */
+    public static final class Entry {
+        private final String name;
+        private final long size;
+        private final @Nullable Emoji emoji;
+
+        private Entry(String name, long size, @Nullable Emoji emoji) {
+            this.name = name;
+            this.size = size;
+            this.emoji = emoji;
+        }
+
+        /**
+         * Gets the path of this file within the archive.
+         *
+         * @return The path of the file.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the uncompressed size of this file, if the archive declares it before the file content.
+         *
+         * @return The size of the file in bytes, or {@code -1} if it is unknown.
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Gets the emoji this file was matched to by its name.
+         *
+         * @return The emoji of the file, if any.
+         */
+        public Optional<Emoji> getEmoji() {
+            return Optional.ofNullable(emoji);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Entry(name:%s,emoji:%s)", name, emoji);
+        }
+    }
+
+    /**
+     * Functional interface for consuming the files of an emoji pack archive.
+     */
+    @FunctionalInterface
+    public interface EntrySink {
+        /**
+         * Consumes a file of the archive.
+         * The content stream is only valid until this method returns; closing it has no effect.
+         *
+         * @param entry   The file.
+         * @param content The content of the file.
+         *
+         * @throws IOException If consuming the file fails.
+         */
+        void accept(Entry entry, InputStream content) throws IOException;
+    }
+}
@@ -0,0 +1,219 @@
+package de.kaleidox.discordemoji.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+import de.kaleidox.discordemoji.model.CatalogChange;
+import de.kaleidox.discordemoji.model.CatalogListener;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiCatalog;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Leaderboards of all cached {@link Emoji}s by their {@linkplain Emoji#getFaves() faves}, which are kept up to date
+ * with every change of the {@link EmojiCatalog}.
+ * <p>
+ * The leaderboards are built once from the current catalog when they are {@linkplain #create() created}; after that,
+ * only emojis that were added, removed or whose faves or category changed are re-ranked, each in logarithmic time.
+ * Every query for the top {@code k} emojis takes {@code O(k)} time.
+ * <p>
+ * The trending leaderboard ranks emojis by the amount of faves they gained in the latest change of the catalog,
+ * which is usually the latest refresh that changed any emoji. Only emojis that gained faves are trending.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class FaveLeaderboard implements CatalogListener, AutoCloseable {
+    private static final Comparator<Entry> BY_FAVES = (a, b) -> a.faves != b.faves
+            ? Integer.compare(b.faves, a.faves)
+            : Integer.compare(a.id, b.id);
+    private static final Comparator<Entry> BY_GROWTH = (a, b) -> a.growth != b.growth
+            ? Integer.compare(b.growth, a.growth)
+            : BY_FAVES.compare(a, b);
+
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> allTime = new TreeSet<>(BY_FAVES);
+    private final Map<Integer, NavigableSet<Entry>> byCategory = new HashMap<>();
+    private final NavigableSet<Entry> trending = new TreeSet<>(BY_GROWTH);
+
+    private boolean seeded = false;
+
+    private FaveLeaderboard() {
+    }
+
+    /**
+     * Creates leaderboards of the current catalog and keeps them up to date until they are {@linkplain #close()
+     * closed}.
+     *
+     * @return The new leaderboards.
+     */
+    public static FaveLeaderboard create() {
+        FaveLeaderboard leaderboard = new FaveLeaderboard();
+        EmojiCatalog catalog = EmojiCatalog.subscribe(leaderboard);
+
+        leaderboard.seed(catalog);
+
+        return leaderboard;
+    }
+
+    /**
+     * Gets the emojis with the most faves of all time.
+     *
+     * @param k The maximum amount of emojis to return.
+     *
+     * @return A new list of at most {@code k} emojis, ordered by their faves, most faves first.
+     */
+    public synchronized List<Emoji> getTop(int k) {
+        return top(allTime, k);
+    }
+
+    /**
+     * Gets the emojis with the most faves in a category.
+     *
+     * @param categoryIndex The {@linkplain de.kaleidox.discordemoji.model.EmojiCategory#getIndex() index} of the
+     *                      category.
+     * @param k             The maximum amount of emojis to return.
+     *
+     * @return A new list of at most {@code k} emojis, ordered by their faves, most faves first.
+     */
+    public synchronized List<Emoji> getTopInCategory(int categoryIndex, int k) {
+        NavigableSet<Entry> category = byCategory.get(categoryIndex);
+
+        return category == null ? new ArrayList<>() : top(category, k);
+    }
+
+    /**
+     * Gets the emojis that gained the most faves in the latest change of the catalog.
+     *
+     * @param k The maximum amount of emojis to return.
+     *
+     * @return A new list of at most {@code k} emojis, ordered by the amount of faves they gained, most first.
+     */
+    public synchronized List<Emoji> getTrending(int k) {
+        return top(trending, k);
+    }
+
+    /**
+     * Gets the amount of faves the given emoji gained in the latest change of the catalog.
+     *
+     * @param emoji The emoji.
+     *
+     * @return The amount of gained faves, or {@code 0} if the emoji is not trending.
+     */
+    public synchronized int getGrowth(Emoji emoji) {
+        Entry entry = entries.get(emoji.getId());
+
+        return entry == null ? 0 : entry.growth;
+    }
+
+    /**
+     * Stops keeping the leaderboards up to date.
+     */
+    @Override
+    public void close() {
+        EmojiCatalog.removeListener(this);
+    }
+
+    @Override
+    public synchronized void onEmojiChange(CatalogChange<Emoji> change) {
+        seed(change.getPrevious());
+
+        List<Entry> faded = new ArrayList<>(trending);
+
+        trending.clear();
+        for (Entry entry : faded)
+            if (entries.get(entry.id) == entry)
+                insert(new Entry(entry.emoji, 0));
+
+        for (Emoji emoji : change.getRemoved())
+            remove(entries.get(emoji.getId()));
+        for (Emoji emoji : change.getAdded())
+            insert(new Entry(emoji, 0));
+        for (CatalogChange.Update<Emoji> update : change.getUpdated()) {
+            int growth = update.getCurrent().getFaves() - update.getPrevious().getFaves();
+
+            insert(new Entry(update.getCurrent(), Math.max(growth, 0)));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FaveLeaderboard(emojis:%d,trending:%d)", allTime.size(), trending.size());
+    }
+
+    /*
+    Builds the leaderboards from the catalog that the first change is relative to. This happens either on creation,
+    or on the first change if it is published before creation has taken the lock; the catalog is the same in both
+    cases, and the lock of the catalog is never held while the lock of the leaderboard is.
+    */
+    private synchronized void seed(EmojiCatalog catalog) {
+        if (seeded)
+            return;
+
+        for (Emoji emoji : catalog.getEmojis())
+            insert(new Entry(emoji, 0));
+        seeded = true;
+    }
+
+    /*
+    Replaces any entry of the same emoji in all rankings, so that an emoji that is delivered again, or whose update
+    arrives as an addition, never leaves a stale entry behind.
+    */
+    private void insert(Entry entry) {
+        remove(entries.get(entry.id));
+        entries.put(entry.id, entry);
+        allTime.add(entry);
+        byCategory.computeIfAbsent(entry.category, any -> new TreeSet<>(BY_FAVES)).add(entry);
+        if (entry.growth > 0)
+            trending.add(entry);
+    }
+
+    private void remove(@Nullable Entry entry) {
+        if (entry == null)
+            return;
+
+        NavigableSet<Entry> category = byCategory.get(entry.category);
+
+        entries.remove(entry.id);
+        allTime.remove(entry);
+        trending.remove(entry);
+        if (category != null && category.remove(entry) && category.isEmpty())
+            byCategory.remove(entry.category);
+    }
+
+    private static List<Emoji> top(NavigableSet<Entry> ranked, int k) {
+        List<Emoji> yields = new ArrayList<>(Math.max(0, Math.min(k, ranked.size())));
+        Iterator<Entry> iterator = ranked.iterator();
+
+        while (yields.size() < k && iterator.hasNext())
+            yields.add(iterator.next().emoji);
+
+        return yields;
+    }
+
+    /*
+    The ranked values of an emoji at the time it was inserted; entries are never mutated, only replaced, so that
+    they can always be found in the sorted sets again.
+    */
+    private static final class Entry {
+        private final Emoji emoji;
+        private final int id;
+        private final int faves;
+        private final int category;
+        private final int growth;
+
+        private Entry(Emoji emoji, int growth) {
+            this.emoji = emoji;
+            this.id = emoji.getId();
+            this.faves = emoji.getFaves();
+            this.category = emoji.getCategory().getPromisedValue();
+            this.growth = growth;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package de.kaleidox.discordemoji.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative {@code long} values.
+ * <p>
+ * Values are counted in buckets that grow exponentially, with eight buckets per power of two, so that every
+ * {@linkplain #getPercentile(double) percentile} is accurate to within 12.5%. Count, sum and maximum are exact.
+ * Recording a value never allocates.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(index(Long.MAX_VALUE) + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a value. Negative values are recorded as {@code 0}.
+     *
+     * @param value The value.
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Gets the amount of recorded values.
+     *
+     * @return The amount of values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Gets the sum of all recorded values.
+     *
+     * @return The sum of the values.
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Gets the largest recorded value.
+     *
+     * @return The largest value, or {@code 0} if no value was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean of all recorded values.
+     *
+     * @return The mean, or {@code 0} if no value was recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+
+        return count == 0 ? 0 : (double) getSum() / count;
+    }
+
+    /**
+     * Gets an upper bound of the given percentile of the recorded values.
+     *
+     * @param percentile The percentile, between {@code 0} and {@code 100}.
+     *
+     * @return The smallest bucket bound that at least the given percentage of values is lower than or equal to,
+     * but never more than the {@linkplain #getMax() largest value}; or {@code 0} if no value was recorded.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("percentile out of range: " + percentile);
+
+        long total = 0;
+
+        for (int i = 0; i < buckets.length(); i++)
+            total += buckets.get(i);
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < buckets.length(); i++)
+            if ((seen += buckets.get(i)) >= rank && seen > 0)
+                return Math.min(upperBound(i), getMax());
+
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Histogram(count:%d,mean:%.1f,p50:%d,p99:%d,max:%d)",
+                getCount(), getMean(), getPercentile(50), getPercentile(99), getMax());
+    }
+
+    /*
+    Values below SUB_BUCKETS have a bucket each; above, every power of two is split into SUB_BUCKETS buckets.
+    */
+    private static int index(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+
+        return lower + width - 1;
+    }
+}
@@ -0,0 +1,241 @@
+package de.kaleidox.discordemoji.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+/**
+ * A {@link MetricsListener} that aggregates all measurements in memory.
+ * <p>
+ * Durations are recorded in {@link Histogram}s per {@link Endpoint}, in nanoseconds; entity counts are summed up
+ * per entity type, and lookups are counted per {@link Lookup}. All values can be read at any time while
+ * measurements are being recorded.
+ */
+public final class HistogramMetrics implements MetricsListener {
+    private final Map<Endpoint, EndpointMetrics> endpoints = new EnumMap<>(Endpoint.class);
+    private final Map<Lookup, LongAdder[]> lookups = new EnumMap<>(Lookup.class);
+    private final Map<Class<?>, LongAdder[]> entities = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     */
+    public HistogramMetrics() {
+        for (Endpoint endpoint : Endpoint.values())
+            endpoints.put(endpoint, new EndpointMetrics());
+        for (Lookup lookup : Lookup.values())
+            lookups.put(lookup, new LongAdder[]{new LongAdder(), new LongAdder()});
+    }
+
+    /**
+     * Gets the histogram of the times from sending a request until its response arrived.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The histogram of response latencies, in nanoseconds.
+     */
+    public Histogram getRequestLatency(Endpoint endpoint) {
+        return endpoints.get(endpoint).requestLatency;
+    }
+
+    /**
+     * Gets the histogram of response body sizes.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The histogram of response body sizes, in bytes.
+     */
+    public Histogram getResponseBytes(Endpoint endpoint) {
+        return endpoints.get(endpoint).responseBytes;
+    }
+
+    /**
+     * Gets the histogram of the times spent parsing response bodies.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The histogram of parse times, in nanoseconds.
+     *
+     * @see MetricsListener#onParse(Endpoint, long, long)
+     */
+    public Histogram getParseTime(Endpoint endpoint) {
+        return endpoints.get(endpoint).parseTime;
+    }
+
+    /**
+     * Gets the histogram of the times spent materializing and publishing the entities of response bodies.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The histogram of materialize times, in nanoseconds.
+     */
+    public Histogram getMaterializeTime(Endpoint endpoint) {
+        return endpoints.get(endpoint).materializeTime;
+    }
+
+    /**
+     * Gets the histogram of the durations of completed cache refreshes.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The histogram of refresh durations, in nanoseconds.
+     */
+    public Histogram getRefreshTime(Endpoint endpoint) {
+        return endpoints.get(endpoint).refreshTime;
+    }
+
+    /**
+     * Gets the amount of requests that failed without any response, or whose refresh failed.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The amount of failures.
+     */
+    public long getFailures(Endpoint endpoint) {
+        return endpoints.get(endpoint).failures.sum();
+    }
+
+    /**
+     * Gets the amount of entities of the given type that were created.
+     *
+     * @param type The entity type.
+     *
+     * @return The amount of created entities.
+     */
+    public long getCreated(Class<?> type) {
+        return entityCount(type, 0);
+    }
+
+    /**
+     * Gets the amount of cached entities of the given type whose values changed.
+     *
+     * @param type The entity type.
+     *
+     * @return The amount of updated entities.
+     */
+    public long getUpdated(Class<?> type) {
+        return entityCount(type, 1);
+    }
+
+    /**
+     * Gets the amount of cached entities of the given type that were read again without any changes.
+     *
+     * @param type The entity type.
+     *
+     * @return The amount of unchanged entities.
+     */
+    public long getUnchanged(Class<?> type) {
+        return entityCount(type, 2);
+    }
+
+    /**
+     * Gets the amount of cached entities of the given type that were removed.
+     *
+     * @param type The entity type.
+     *
+     * @return The amount of removed entities.
+     */
+    public long getRemoved(Class<?> type) {
+        return entityCount(type, 3);
+    }
+
+    /**
+     * Gets the amount of lookups that found an entity.
+     *
+     * @param lookup The kind of lookup.
+     *
+     * @return The amount of hits.
+     */
+    public long getHits(Lookup lookup) {
+        return lookups.get(lookup)[0].sum();
+    }
+
+    /**
+     * Gets the amount of lookups that did not find an entity.
+     *
+     * @param lookup The kind of lookup.
+     *
+     * @return The amount of misses.
+     */
+    public long getMisses(Lookup lookup) {
+        return lookups.get(lookup)[1].sum();
+    }
+
+    /**
+     * Gets the ratio of lookups that found an entity.
+     *
+     * @param lookup The kind of lookup.
+     *
+     * @return The hit ratio between {@code 0} and {@code 1}, or {@code NaN} if there were no lookups.
+     */
+    public double getHitRatio(Lookup lookup) {
+        long hits = getHits(lookup);
+
+        return (double) hits / (hits + getMisses(lookup));
+    }
+
+    @Override
+    public void onResponse(Endpoint endpoint, int status, long nanos) {
+        endpoints.get(endpoint).requestLatency.record(nanos);
+    }
+
+    @Override
+    public void onRequestFailure(Endpoint endpoint, long nanos, Throwable cause) {
+        endpoints.get(endpoint).failures.increment();
+    }
+
+    @Override
+    public void onResponseBody(Endpoint endpoint, long bytes) {
+        endpoints.get(endpoint).responseBytes.record(bytes);
+    }
+
+    @Override
+    public void onParse(Endpoint endpoint, long parseNanos, long materializeNanos) {
+        EndpointMetrics metrics = endpoints.get(endpoint);
+
+        metrics.parseTime.record(parseNanos);
+        metrics.materializeTime.record(materializeNanos);
+    }
+
+    @Override
+    public void onMaterialize(Class<?> type, int created, int updated, int unchanged, int removed) {
+        LongAdder[] counts = entities.computeIfAbsent(type, any -> new LongAdder[]{
+                new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()});
+
+        counts[0].add(created);
+        counts[1].add(updated);
+        counts[2].add(unchanged);
+        counts[3].add(removed);
+    }
+
+    @Override
+    public void onRefresh(Endpoint endpoint, long nanos, boolean success) {
+        EndpointMetrics metrics = endpoints.get(endpoint);
+
+        metrics.refreshTime.record(nanos);
+        if (!success)
+            metrics.failures.increment();
+    }
+
+    @Override
+    public void onLookup(Lookup lookup, boolean hit) {
+        lookups.get(lookup)[hit ? 0 : 1].increment();
+    }
+
+    private long entityCount(Class<?> type, int kind) {
+        LongAdder[] counts = entities.get(type);
+
+        return counts == null ? 0 : counts[kind].sum();
+    }
+
+    private static final class EndpointMetrics {
+        private final Histogram requestLatency = new Histogram();
+        private final Histogram responseBytes = new Histogram();
+        private final Histogram parseTime = new Histogram();
+        private final Histogram materializeTime = new Histogram();
+        private final Histogram refreshTime = new Histogram();
+        private final LongAdder failures = new LongAdder();
+    }
+}
@@ -0,0 +1,26 @@
+package de.kaleidox.discordemoji.metrics;
+
+/**
+ * An enumeration of all lookups of cached entities that are reported to a {@link MetricsListener}.
+ */
+public enum Lookup {
+    /**
+     * Lookup of an Emoji by its ID.
+     */
+    EMOJI_BY_ID,
+
+    /**
+     * Lookup of an Emoji by its slug.
+     */
+    EMOJI_BY_SLUG,
+
+    /**
+     * Lookup of an EmojiPack by its ID.
+     */
+    EMOJI_PACK_BY_ID,
+
+    /**
+     * Lookup of an EmojiCategory by its index.
+     */
+    EMOJI_CATEGORY_BY_INDEX
+}
@@ -0,0 +1,43 @@
+package de.kaleidox.discordemoji.metrics;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Holds the {@link MetricsListener} that all measurements are reported to.
+ */
+public final class Metrics {
+    private static volatile MetricsListener listener = MetricsListener.NONE;
+
+    private Metrics() {
+        // nope
+    }
+
+    /**
+     * Sets the listener to report all following measurements to.
+     * Setting the listener to {@code null} restores the {@linkplain MetricsListener#NONE no-op listener}.
+     *
+     * @param listener The listener, or null.
+     */
+    public static void setListener(@Nullable MetricsListener listener) {
+        Metrics.listener = listener == null ? MetricsListener.NONE : listener;
+    }
+
+    /**
+     * Gets the listener that measurements are reported to.
+     *
+     * @return The current listener.
+     */
+    public static MetricsListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Returns whether any listener other than the no-op listener is installed.
+     * Hot paths only measure time if this returns true.
+     *
+     * @return Whether measurements are reported.
+     */
+    public static boolean isEnabled() {
+        return listener != MetricsListener.NONE;
+    }
+}
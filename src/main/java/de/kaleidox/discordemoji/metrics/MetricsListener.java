@@ -0,0 +1,95 @@
+package de.kaleidox.discordemoji.metrics;
+
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+/**
+ * Receives measurements from the hot paths of the library.
+ * <p>
+ * All methods have empty default implementations, so that implementations only need to override what they are
+ * interested in. Methods are invoked synchronously on the measuring thread, which may be a thread of the transport,
+ * and must therefore return quickly and must not throw.
+ * <p>
+ * While the {@linkplain #NONE no-op listener} is {@linkplain Metrics#setListener(MetricsListener) installed}, which
+ * is the default, no time is measured at all.
+ *
+ * @see HistogramMetrics
+ */
+public interface MetricsListener {
+    /**
+     * A listener that discards all measurements.
+     */
+    MetricsListener NONE = new MetricsListener() {
+    };
+
+    /**
+     * Called when the response to a request has arrived, before its body is read.
+     *
+     * @param endpoint The requested endpoint.
+     * @param status   The HTTP status code of the response.
+     * @param nanos    The time from sending the request until the response arrived, in nanoseconds.
+     */
+    default void onResponse(Endpoint endpoint, int status, long nanos) {
+    }
+
+    /**
+     * Called when a request failed without any response.
+     *
+     * @param endpoint The requested endpoint.
+     * @param nanos    The time from sending the request until it failed, in nanoseconds.
+     * @param cause    The cause of the failure.
+     */
+    default void onRequestFailure(Endpoint endpoint, long nanos, Throwable cause) {
+    }
+
+    /**
+     * Called when a response body has been consumed.
+     *
+     * @param endpoint The requested endpoint.
+     * @param bytes    The amount of bytes that were read from the body.
+     */
+    default void onResponseBody(Endpoint endpoint, long bytes) {
+    }
+
+    /**
+     * Called when a response body has been parsed into entities.
+     * <p>
+     * Because bodies are parsed while they are being received, the parse time includes waiting for the network.
+     *
+     * @param endpoint         The requested endpoint.
+     * @param parseNanos       The time spent parsing JSON, in nanoseconds.
+     * @param materializeNanos The time spent materializing and publishing entities, in nanoseconds.
+     */
+    default void onParse(Endpoint endpoint, long parseNanos, long materializeNanos) {
+    }
+
+    /**
+     * Called when a batch of entities has been published to the catalog.
+     *
+     * @param type      The type of the entities; {@code Emoji}, {@code EmojiPack} or {@code EmojiCategory}.
+     * @param created   The amount of entities that were not cached before.
+     * @param updated   The amount of cached entities whose values changed.
+     * @param unchanged The amount of cached entities whose values did not change.
+     * @param removed   The amount of cached entities that were removed.
+     */
+    default void onMaterialize(Class<?> type, int created, int updated, int unchanged, int removed) {
+    }
+
+    /**
+     * Called when a refresh of the cache of an endpoint has completed.
+     *
+     * @param endpoint The refreshed endpoint.
+     * @param nanos    The duration of the refresh, in nanoseconds.
+     * @param success  Whether the refresh succeeded.
+     */
+    default void onRefresh(Endpoint endpoint, long nanos, boolean success) {
+    }
+
+    /**
+     * Called on every lookup of a cached entity by its key.
+     *
+     * @param lookup The kind of lookup.
+     * @param hit    Whether an entity was found.
+     */
+    default void onLookup(Lookup lookup, boolean hit) {
+    }
+}
@@ -0,0 +1,82 @@
+package de.kaleidox.discordemoji.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.jetbrains.annotations.Nullable;
+
+/*
+Append-only storage of strings in a single byte array.
+Every string is stored as a varint byte length followed by its UTF-8 bytes, and referenced by its offset;
+the offset of null is -1. Not thread-safe; an arena must be safely published once it is filled.
+*/
+final class ByteArena {
+    private byte[] bytes;
+    private int length = 0;
+
+    ByteArena(int capacity) {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    int add(@Nullable String value) {
+        return value == null ? -1 : append(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Nullable String get(int offset) {
+        if (offset == -1)
+            return null;
+
+        byte[] bytes = this.bytes;
+        int len = lengthAt(bytes, offset);
+
+        return new String(bytes, offset + headerSize(len), len, StandardCharsets.UTF_8);
+    }
+
+    void trim() {
+        if (length < bytes.length)
+            bytes = Arrays.copyOf(bytes, length);
+    }
+
+    private int append(byte[] encoded) {
+        int offset = length;
+
+        ensureCapacity(length + 5 + encoded.length);
+        for (int len = encoded.length; ; len >>>= 7) {
+            if ((len & ~0x7F) == 0) {
+                bytes[length++] = (byte) len;
+                break;
+            }
+            bytes[length++] = (byte) (len & 0x7F | 0x80);
+        }
+        System.arraycopy(encoded, 0, bytes, length, encoded.length);
+        length += encoded.length;
+
+        return offset;
+    }
+
+    private static int lengthAt(byte[] bytes, int offset) {
+        int len = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[offset++];
+
+            len |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return len;
+        }
+    }
+
+    private static int headerSize(int len) {
+        int size = 1;
+
+        while ((len >>>= 7) != 0)
+            size++;
+
+        return size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length + (bytes.length >> 1)));
+    }
+}
@@ -0,0 +1,132 @@
+package de.kaleidox.discordemoji.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The difference between two versions of the {@link EmojiCatalog} for one type of entity.
+ *
+ * @param <T> Type-variable for the entity.
+ */
+public final class CatalogChange<T> {
+    private final EmojiCatalog previous;
+    private final EmojiCatalog current;
+    private final Collection<T> added;
+    private final Collection<T> removed;
+    private final Collection<Update<T>> updated;
+
+    CatalogChange(
+            EmojiCatalog previous,
+            EmojiCatalog current,
+            Collection<T> added,
+            Collection<T> removed,
+            Collection<Update<T>> updated
+    ) {
+        this.previous = previous;
+        this.current = current;
+        this.added = Collections.unmodifiableCollection(added);
+        this.removed = Collections.unmodifiableCollection(removed);
+        this.updated = Collections.unmodifiableCollection(updated);
+    }
+
+    /**
+     * Gets the catalog before the change.
+     *
+     * @return The previous catalog.
+     */
+    public EmojiCatalog getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Gets the catalog after the change.
+     *
+     * @return The current catalog.
+     */
+    public EmojiCatalog getCurrent() {
+        return current;
+    }
+
+    /**
+     * Gets all entities that were added with the change.
+     *
+     * @return An unmodifiable collection of the added entities.
+     */
+    public Collection<T> getAdded() {
+        return added;
+    }
+
+    /**
+     * Gets all entities that were removed with the change. The removed entities are no longer cached.
+     *
+     * @return An unmodifiable collection of the removed entities, in their last version.
+     */
+    public Collection<T> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Gets all entities whose values were changed.
+     *
+     * @return An unmodifiable collection of the updates.
+     */
+    public Collection<Update<T>> getUpdated() {
+        return updated;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CatalogChange(version:%d,added:%d,removed:%d,updated:%d)",
+                current.getVersion(), added.size(), removed.size(), updated.size());
+    }
+
+    /**
+     * The update of a single entity.
+     *
+     * @param <T> Type-variable for the entity.
+     */
+    public static final class Update<T> {
+        private final T previous;
+        private final T current;
+        private final Set<String> changedFields;
+
+        Update(T previous, T current, Set<String> changedFields) {
+            this.previous = previous;
+            this.current = current;
+            this.changedFields = Collections.unmodifiableSet(changedFields);
+        }
+
+        /**
+         * Gets the entity before the update.
+         *
+         * @return The previous version of the entity.
+         */
+        public T getPrevious() {
+            return previous;
+        }
+
+        /**
+         * Gets the entity after the update.
+         *
+         * @return The current version of the entity.
+         */
+        public T getCurrent() {
+            return current;
+        }
+
+        /**
+         * Gets the names of all changed fields, as they are named in the API response, for example {@code "faves"}.
+         *
+         * @return An unmodifiable set of the changed field names.
+         */
+        public Set<String> getChangedFields() {
+            return changedFields;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Update(%s,changed:%s)", current, changedFields);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package de.kaleidox.discordemoji.model;
+
+/**
+ * Listener for changes of the {@link EmojiCatalog}.
+ * <p>
+ * Listeners are {@linkplain EmojiCatalog#addListener(CatalogListener) registered} once and are notified after every
+ * published catalog that changed any entity, in the order the catalogs were published. Notifications happen on the
+ * thread that published the catalog and block further publishes, so listeners should hand expensive work off to
+ * another thread.
+ * <p>
+ * Exceptions thrown by a listener do not affect the publish or other listeners; they are handed to the
+ * {@linkplain Thread#getUncaughtExceptionHandler() uncaught exception handler} of the publishing thread.
+ */
+public interface CatalogListener {
+    /**
+     * Called when a published catalog changed any Emoji.
+     *
+     * @param change The change.
+     */
+    default void onEmojiChange(CatalogChange<Emoji> change) {
+    }
+
+    /**
+     * Called when a published catalog changed any EmojiPack.
+     *
+     * @param change The change.
+     */
+    default void onEmojiPackChange(CatalogChange<EmojiPack> change) {
+    }
+
+    /**
+     * Called when a published catalog changed any EmojiCategory.
+     *
+     * @param change The change.
+     */
+    default void onEmojiCategoryChange(CatalogChange<EmojiCategory> change) {
+    }
+}
@@ -0,0 +1,96 @@
+package de.kaleidox.discordemoji.model;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/*
+An emoji that is only a view of one row of the shared emoji columns.
+*/
+final class CompactEmoji extends Emoji {
+    private final EmojiColumns columns;
+    private final int row;
+
+    CompactEmoji(EmojiColumns columns, int row, long version) {
+        super(version);
+
+        this.columns = columns;
+        this.row = row;
+    }
+
+    @Override
+    public int getId() {
+        return columns.id(row);
+    }
+
+    @Override
+    public String getTitle() {
+        return columns.title(row);
+    }
+
+    @Override
+    public String getSlug() {
+        return columns.slug(row);
+    }
+
+    @Override
+    public URL getImageURL() {
+        String image = columns.image(row);
+
+        try {
+            return image == null ? null : new URL(image);
+        } catch (MalformedURLException e) {
+            // the url was validated before it was stored
+            throw new AssertionError("Stored image URL is malformed: " + image, e);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return columns.description(row);
+    }
+
+    @Override
+    public int getFaves() {
+        return columns.faves(row);
+    }
+
+    @Override
+    public String getSubmittedBy() {
+        return columns.submittedBy(row);
+    }
+
+    @Override
+    int category() {
+        return columns.category(row);
+    }
+
+    @Override
+    String license() {
+        return columns.license(row);
+    }
+
+    @Override
+    String source() {
+        return columns.source(row);
+    }
+
+    @Override
+    int width() {
+        return columns.width(row);
+    }
+
+    @Override
+    int height() {
+        return columns.height(row);
+    }
+
+    @Override
+    int filesize() {
+        return columns.filesize(row);
+    }
+
+    @Override
+    String image() {
+        return columns.image(row);
+    }
+}
@@ -1,43 +1,39 @@
 package de.kaleidox.discordemoji.model;
 
 import java.net.URL;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.metrics.Lookup;
+import de.kaleidox.discordemoji.metrics.Metrics;
+import de.kaleidox.util.IntIndex;
 import de.kaleidox.util.PromisedValue;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Representation of an Emoji
+ * <p>
+ * Emojis are immutable; a refresh that changes an emoji publishes a new Emoji object in a new {@link EmojiCatalog}.
+ * They are either stored as plain objects, or, in {@linkplain #setCompactStorage(boolean) compact storage},
+ * as lightweight views into a columnar store.
  */
-public class Emoji {
-    private static final Map<Integer, Emoji> cache = new ConcurrentHashMap<>();
+public abstract class Emoji {
+    private static volatile boolean compact = false;
 
-    @JsonProperty(required = true) private int id;
-    @JsonProperty(required = true) private String title;
-    @JsonProperty private String slug;
-    @JsonProperty(value = "image", required = true) private URL imageUrl;
-    @JsonProperty private String description;
-    @JsonProperty private int category;
-    @JsonProperty private String license;
-    @JsonProperty private String source;
-    @JsonProperty private int faves;
-    @JsonProperty("submitted_by") private String submittedBy;
-    @JsonProperty private int width;
-    @JsonProperty private int height;
-    @JsonProperty private int filesize;
+    private final long version;
 
-    private Emoji(JsonNode data) {
-        cache.put(id, update(data));
+    Emoji(long version) {
+        this.version = version;
     }
 
     /**
@@ -45,56 +41,51 @@ public class Emoji {
      *
      * @return The ID.
      */
-    public int getId() {
-        return id;
-    }
+    public abstract int getId();
 
     /**
      * Gets the title of the emoji.
      *
      * @return The title.
      */
-    public String getTitle() {
-        return title;
-    }
+    public abstract String getTitle();
 
     /**
      * Gets the URL slug of the emoji.
      *
      * @return The URL-Slug.
      */
-    public String getSlug() {
-        return slug;
-    }
+    public abstract String getSlug();
 
     /**
      * Gets the image URL of the emoji.
      *
      * @return The image URL.
      */
-    public URL getImageURL() {
-        return imageUrl;
-    }
+    public abstract URL getImageURL();
 
     /**
      * Gets the description of the emoji.
      *
      * @return The description.
      */
-    public String getDescription() {
-        return description;
-    }
+    public abstract String getDescription();
 
     /**
      * Gets the category of the emoji.
      * <p>
      * To receive the {@linkplain PromisedValue#getPossibleValue() possible value}, you
      * must first {@linkplain DiscordEmoji#refreshEmojiCategoryCache() refresh the EmojiCategory-Cache}.
+     * If the current catalog caches the category, the returned value is its link to the category, which is already
+     * resolved and shared by all emojis of the category.
+     * To get the category of a pinned catalog, use {@link EmojiCatalog#getEmojiCategoryOf(Emoji)} instead.
      *
      * @return The category.
      */
     public PromisedValue<Integer, EmojiCategory> getCategory() {
-        return new PromisedValue<>(category, EmojiCategory::getByIndex);
+        PromisedValue<Integer, EmojiCategory> link = EmojiCatalog.current().link(category());
+
+        return link != null ? link : new PromisedValue<>(category(), EmojiCategory::getByIndex);
     }
 
     /**
@@ -103,7 +94,9 @@ public class Emoji {
      * @return The license.
      */
     public Optional<String> getLicense() {
-        return license.isEmpty() || license.equals("0") ? Optional.empty() : Optional.of(license);
+        String license = license();
+
+        return license == null || license.isEmpty() || license.equals("0") ? Optional.empty() : Optional.of(license);
     }
 
     /**
@@ -112,7 +105,9 @@ public class Emoji {
      * @return The source of the emoji.
      */
     public Optional<String> getSource() {
-        return source.isEmpty() ? Optional.empty() : Optional.of(source);
+        String source = source();
+
+        return source == null || source.isEmpty() ? Optional.empty() : Optional.of(source);
     }
 
     /**
@@ -121,18 +116,14 @@ public class Emoji {
      *
      * @return The amount of faves.
      */
-    public int getFaves() {
-        return faves;
-    }
+    public abstract int getFaves();
 
     /**
      * Gets the name of the person who submitted the emoji.
      *
      * @return The submitter name.
      */
-    public String getSubmittedBy() {
-        return submittedBy;
-    }
+    public abstract String getSubmittedBy();
 
     /**
      * Gets the width of the emoji image.
@@ -140,6 +131,8 @@ public class Emoji {
      * @return The width of the image.
      */
     public OptionalInt getWidth() {
+        int width = width();
+
         return width == 0 ? OptionalInt.empty() : OptionalInt.of(width);
     }
 
@@ -149,6 +142,8 @@ public class Emoji {
      * @return The height of the image.
      */
     public OptionalInt getHeight() {
+        int height = height();
+
         return height == 0 ? OptionalInt.empty() : OptionalInt.of(height);
     }
 
@@ -158,46 +153,82 @@ public class Emoji {
      * @return The file size of the emoji image.
      */
     public OptionalInt getFilesize() {
+        int filesize = filesize();
+
         return filesize == 0 ? OptionalInt.empty() : OptionalInt.of(filesize);
     }
 
+    /**
+     * Gets the version of the {@link EmojiCatalog} that this state of the emoji was first published in.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof Emoji
-                && ((Emoji) obj).id == id;
+                && ((Emoji) obj).getId() == getId();
+    }
+
+    @Override
+    public int hashCode() {
+        return getId();
     }
 
     @Override
     public String toString() {
-        return String.format("Emoji(id:%d,title:%s)", id, title);
-    }
-
-    @Contract("!null -> this; null -> fail")
-    private Emoji update(JsonNode data) {
-        String str;
-
-        try {
-            this.id = data.path("id").asInt(id);
-            this.title = data.path("title").asText(title);
-            this.slug = data.path("slug").asText(slug);
-            this.imageUrl = (str = data.path("image").asText())
-                    .equals(imageUrl == null ? null : imageUrl.toExternalForm())
-                    ? imageUrl
-                    : new URL(str);
-            this.description = data.path("description").asText(description);
-            this.category = data.path("category").asInt(category);
-            this.license = data.path("license").asText(license);
-            this.source = data.path("source").asText(source);
-            this.faves = data.path("faves").asInt(faves);
-            this.submittedBy = data.path("submitted_by").asText(submittedBy);
-            this.width = data.path("width").asInt(width);
-            this.height = data.path("height").asInt(height);
-            this.filesize = data.path("filesize").asInt(filesize);
-        } catch (Throwable e) {
-            throw new RuntimeException(toString() + " update exception", e);
-        }
+        return String.format("Emoji(id:%d,title:%s)", getId(), getTitle());
+    }
+
+    abstract int category();
 
-        return this;
+    abstract @Nullable String license();
+
+    abstract @Nullable String source();
+
+    abstract int width();
+
+    abstract int height();
+
+    abstract int filesize();
+
+    abstract @Nullable String image();
+
+    /**
+     * Sets whether emojis are kept in compact storage.
+     * <p>
+     * In compact storage, all emojis share a columnar store: numeric fields are kept in primitive arrays,
+     * the license, source and submitter names are dictionary-encoded, and all other texts are packed into a single
+     * byte array. {@link Emoji} objects are then only thin views into this store, which considerably reduces the
+     * retained heap per emoji. In exchange, every call to a text getter decodes a new {@link String}, and
+     * {@link #getImageURL()} creates a new {@link URL}.
+     * <p>
+     * Every catalog version has its own columnar store, so unchanged emojis are copied into the new store by each
+     * refresh instead of being reused.
+     * <p>
+     * Compact storage is disabled by default.
+     *
+     * @param compact Whether to use compact storage.
+     *
+     * @throws IllegalStateException If any emoji is already cached.
+     */
+    public static synchronized void setCompactStorage(boolean compact) throws IllegalStateException {
+        if (EmojiCatalog.current().emojis.size() > 0)
+            throw new IllegalStateException("Emoji storage can only be changed while the emoji cache is empty");
+
+        Emoji.compact = compact;
+    }
+
+    /**
+     * Gets all cached Emojis.
+     *
+     * @return A new collection of all cached Emojis.
+     */
+    public static Collection<Emoji> getAll() {
+        return EmojiCatalog.current().getEmojis();
     }
 
     /**
@@ -209,16 +240,79 @@ public class Emoji {
      * @return The emoji.
      */
     public static Optional<Emoji> getByID(int id) {
-        return (cache.size() > 2000
-                ? cache.entrySet().parallelStream()
-                : cache.entrySet().stream())
-                .filter(entry -> entry.getKey() == id)
-                .findFirst()
-                .map(Map.Entry::getValue);
+        return EmojiCatalog.current().getEmojiByID(id);
+    }
+
+    /**
+     * Gets several Emojis from the cache by their IDs.
+     * The returned array has the same length as the given array; every position holds the Emoji with the ID at the
+     * same position, or {@code null} if no such Emoji is cached.
+     *
+     * @param ids The IDs of the Emojis to get.
+     *
+     * @return An array of the Emojis.
+     */
+    public static Emoji[] getByIDs(int... ids) {
+        IntIndex<Emoji> cache = EmojiCatalog.current().emojis.byId;
+        Emoji[] yields = new Emoji[ids.length];
+
+        for (int i = 0; i < ids.length; i++)
+            yields[i] = cache.get(ids[i]);
+
+        return yields;
+    }
+
+    /**
+     * Gets any Emoji from the cache by its URL slug.
+     * Before ever calling this method, you must {@linkplain DiscordEmoji#refreshEmojiCache() refresh the Emoji-Cache}.
+     *
+     * @param slug The URL slug of the Emoji to get.
+     *
+     * @return The emoji.
+     */
+    public static Optional<Emoji> getBySlug(String slug) {
+        return EmojiCatalog.current().getEmojiBySlug(slug);
+    }
+
+    /**
+     * Gets all cached Emojis in the category with the given index.
+     * Before ever calling this method, you must {@linkplain DiscordEmoji#refreshEmojiCache() refresh the Emoji-Cache}.
+     *
+     * @param categoryIndex The {@linkplain EmojiCategory#getIndex() index} of the category.
+     *
+     * @return An unmodifiable collection of the emojis in the category.
+     */
+    public static Collection<Emoji> getByCategory(int categoryIndex) {
+        return EmojiCatalog.current().getEmojisByCategory(categoryIndex);
+    }
+
+    /**
+     * Gets all cached Emojis that were submitted by the given name.
+     * Before ever calling this method, you must {@linkplain DiscordEmoji#refreshEmojiCache() refresh the Emoji-Cache}.
+     *
+     * @param submittedBy The name of the submitter.
+     *
+     * @return An unmodifiable collection of the emojis submitted by the name.
+     */
+    public static Collection<Emoji> getBySubmitter(String submittedBy) {
+        return EmojiCatalog.current().getEmojisBySubmitter(submittedBy);
     }
 
     /**
-     * Refreshes the emoji cache and tries to return the emoji with the given ID.
+     * Gets all cached Emojis whose title starts with the given prefix, ignoring case.
+     * The emojis are ordered by their title.
+     * Before ever calling this method, you must {@linkplain DiscordEmoji#refreshEmojiCache() refresh the Emoji-Cache}.
+     *
+     * @param prefix The prefix of the title.
+     *
+     * @return A new collection of the emojis whose title starts with the prefix.
+     */
+    public static Collection<Emoji> getByTitlePrefix(String prefix) {
+        return EmojiCatalog.current().getEmojisByTitlePrefix(prefix);
+    }
+
+    /**
+     * Tries to return the emoji with the given ID, refreshing the emoji cache only if it is not already cached.
      * If no such emoji could be found, the returned future completes
      * {@linkplain CompletableFuture#exceptionally(Function) exceptionally} with a {@link NoSuchElementException}.
      *
@@ -227,13 +321,172 @@ public class Emoji {
      * @return The emoji.
      */
     public static CompletableFuture<Emoji> requestByID(int id) {
+        Emoji cached = EmojiCatalog.current().emojis.byId.get(id);
+
+        Metrics.getListener().onLookup(Lookup.EMOJI_BY_ID, cached != null);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        // the lookup was already recorded as a miss, so the refreshed catalog is read without recording another one
         return DiscordEmoji.refreshEmojiCache()
-                .thenApply(emojis -> getByID(id))
+                .thenApply(emojis -> Optional.ofNullable(EmojiCatalog.current().emojis.byId.get(id)))
                 .thenApply(emoji -> emoji.orElseThrow(() ->
                         new NoSuchElementException("No emoji with ID [" + id + "] was found!")));
     }
 
-    private static Emoji getOrCreate(JsonNode data) {
-        return cache.compute(data.get("id").asInt(), (id, emoji) -> emoji == null ? new Emoji(data) : emoji.update(data));
+    static EntityMaterializer.Batch<Emoji> batch() {
+        return new Batch(false);
+    }
+
+    static EntityMaterializer.Batch<Emoji> merge() {
+        return new Batch(true);
+    }
+
+    /*
+    Builds the emoji table of a new catalog version. Emojis whose values did not change keep their version;
+    in heap storage, the unchanged Emoji objects themselves are reused.
+    A batch that is not merged replaces all emojis, so every emoji of the base version that is missing in the batch
+    is removed.
+    If another batch published emojis while this batch was built, the table is built again on top of the emojis that
+    are actually replaced, and the changes are computed against them.
+    */
+    private static final class Batch implements EntityMaterializer.Batch<Emoji> {
+        private final EmojiTable base = EmojiCatalog.current().emojis;
+        private final long version = EmojiCatalog.nextVersion();
+        private final boolean merge;
+        private final Collection<Emoji> entries = new ArrayList<>();
+        private final Collection<Emoji> added = new ArrayList<>();
+        private final Collection<Emoji> removed = new ArrayList<>();
+        private final Collection<CatalogChange.Update<Emoji>> updated = new ArrayList<>();
+        private EmojiTable.Builder table;
+        private int unchanged = 0;
+
+        private Batch(boolean merge) {
+            this.table = new EmojiTable.Builder(compact ? new EmojiColumns(merge ? base.size() + 1 : 0) : null);
+            this.merge = merge;
+
+            if (merge)
+                for (Emoji emoji : base.byId.values())
+                    table.add(copy(emoji));
+        }
+
+        @Override
+        public Emoji add(JsonNode data, int index) {
+            Emoji previous = base.byId.get(data.path("id").asInt());
+            EmojiData values;
+
+            try {
+                values = EmojiData.read(data, previous);
+            } catch (Throwable e) {
+                throw new RuntimeException((previous == null ? "Emoji" : previous) + " update exception", e);
+            }
+
+            boolean unchanged = previous != null && values.matches(previous);
+            EmojiColumns columns = table.columns();
+            Emoji emoji;
+
+            if (columns != null)
+                emoji = new CompactEmoji(columns, columns.add(values), unchanged ? previous.version : version);
+            else if (unchanged)
+                emoji = previous;
+            else emoji = new HeapEmoji(values,
+                        values.imageUrl == null && previous != null ? previous.getImageURL() : values.imageUrl,
+                        version);
+
+            table.add(emoji);
+            entries.add(emoji);
+
+            if (previous == null)
+                added.add(emoji);
+            else if (!unchanged)
+                updated.add(new CatalogChange.Update<>(previous, emoji, values.changes(previous)));
+            else this.unchanged++;
+
+            return emoji;
+        }
+
+        @Override
+        public Collection<Emoji> publish() {
+            EmojiCatalog published = EmojiCatalog.publish(version, this::replace);
+
+            Metrics.getListener().onMaterialize(Emoji.class, added.size(), updated.size(), unchanged, removed.size());
+
+            return published.emojis.byId.values();
+        }
+
+        private EmojiCatalog.Replacement replace(EmojiCatalog previous) {
+            if (previous.emojis != base)
+                rebase(previous.emojis);
+
+            EmojiTable built = table.build();
+            EmojiColumns columns = built.columns;
+
+            if (columns != null)
+                columns.trim();
+            if (!merge)
+                for (Emoji emoji : previous.emojis.byId.values())
+                    if (built.byId.get(emoji.getId()) == null)
+                        removed.add(emoji);
+
+            return EmojiCatalog.Replacement.emojis(built,
+                    added.isEmpty() && removed.isEmpty() && updated.isEmpty() ? null : (old, current) -> {
+                        CatalogChange<Emoji> change = new CatalogChange<>(old, current, added, removed, updated);
+
+                        return listener -> listener.onEmojiChange(change);
+                    });
+        }
+
+        /*
+        Builds the table again from the emojis that are replaced, and compares the entries of this batch with them.
+        Entries keep their version, which is the version their values were first published in.
+        */
+        private void rebase(EmojiTable emojis) {
+            EmojiColumns columns = table.columns();
+
+            table = new EmojiTable.Builder(columns == null
+                    ? null
+                    : new EmojiColumns((merge ? emojis.size() : 0) + entries.size()));
+            added.clear();
+            updated.clear();
+            unchanged = 0;
+
+            if (merge)
+                for (Emoji emoji : emojis.byId.values())
+                    table.add(copy(emoji));
+
+            for (Emoji entry : entries) {
+                Emoji previous = emojis.byId.get(entry.getId());
+                EmojiData values = EmojiData.of(entry);
+                boolean unchanged = previous != null && values.matches(previous)
+                        && Objects.equals(image(previous), image(entry));
+
+                Emoji emoji = unchanged && columns == null ? previous : copy(entry);
+
+                table.add(emoji);
+
+                if (previous == null)
+                    added.add(emoji);
+                else if (!unchanged) {
+                    Set<String> changes = values.changes(previous);
+
+                    if (!Objects.equals(image(previous), image(entry)))
+                        changes.add("image");
+                    updated.add(new CatalogChange.Update<>(previous, emoji, changes));
+                } else this.unchanged++;
+            }
+        }
+
+        private Emoji copy(Emoji emoji) {
+            EmojiColumns columns = table.columns();
+
+            if (columns == null)
+                return emoji;
+
+            return new CompactEmoji(columns, columns.add(EmojiData.of(emoji)), emoji.version);
+        }
+
+        private static @Nullable String image(Emoji emoji) {
+            return emoji.getImageURL() == null ? null : emoji.getImageURL().toExternalForm();
+        }
     }
 }
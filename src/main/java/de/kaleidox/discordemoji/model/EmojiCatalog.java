@@ -0,0 +1,396 @@
+package de.kaleidox.discordemoji.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import de.kaleidox.discordemoji.metrics.Lookup;
+import de.kaleidox.discordemoji.metrics.Metrics;
+import de.kaleidox.util.IntIndex;
+import de.kaleidox.util.PromisedValue;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable version of all cached entities, including the indexes that are used for lookups.
+ * <p>
+ * Every refresh builds a new catalog off to the side and publishes it at once, and every entity carries the
+ * {@linkplain #getVersion() version} of the catalog it was first published in. Entities that did not change keep their
+ * version. Published catalogs and entities are never modified, so readers never see a partially applied refresh.
+ * The links between emojis and their categories are kept by each catalog, so that they always point into the
+ * catalog they were resolved from.
+ * <p>
+ * The static lookup methods of the model classes always use the current catalog. To serve a whole request from one
+ * consistent version, {@linkplain #current() pin the current catalog} once and use its methods instead.
+ */
+public final class EmojiCatalog {
+    private static final AtomicLong versions = new AtomicLong(0);
+    private static final List<CatalogListener> listeners = new CopyOnWriteArrayList<>();
+    private static volatile EmojiCatalog current
+            = new EmojiCatalog(0, EmojiTable.EMPTY, new IntIndex<>(), new EmojiCategory[0], null);
+
+    private final long version;
+    final EmojiTable emojis;
+    final IntIndex<EmojiPack> packs;
+    final EmojiCategory[] categories;
+    private final PromisedValue<Integer, EmojiCategory>[] links;
+    private final Collection<Emoji>[] members;
+
+    private EmojiCatalog(
+            long version,
+            EmojiTable emojis,
+            IntIndex<EmojiPack> packs,
+            EmojiCategory[] categories,
+            @Nullable EmojiCatalog previous
+    ) {
+        this.version = version;
+        this.emojis = emojis;
+        this.packs = packs;
+        this.categories = categories;
+        this.links = previous != null && previous.categories == categories ? previous.links : links(categories);
+        this.members = previous != null && previous.categories == categories && previous.emojis == emojis
+                ? previous.members
+                : members(categories, emojis);
+    }
+
+    /**
+     * Gets the current catalog. The returned catalog never changes, even if caches are refreshed afterwards.
+     *
+     * @return The current catalog.
+     */
+    public static EmojiCatalog current() {
+        return current;
+    }
+
+    /**
+     * Registers a listener that is notified about every change of the catalog.
+     *
+     * @param listener The listener to add.
+     */
+    public static void addListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Registers a listener and returns the current catalog atomically: the listener is notified about exactly those
+     * changes that are published after the returned catalog. This allows to build state from the returned catalog
+     * and then maintain it incrementally without missing or repeating any change.
+     *
+     * @param listener The listener to add.
+     *
+     * @return The catalog that the first notification of the listener is relative to.
+     */
+    public static synchronized EmojiCatalog subscribe(CatalogListener listener) {
+        listeners.add(listener);
+
+        return current;
+    }
+
+    /**
+     * Removes a previously registered listener.
+     *
+     * @param listener The listener to remove.
+     */
+    public static void removeListener(CatalogListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the version of this catalog. Versions increase with every published catalog.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets all Emojis of this catalog.
+     *
+     * @return A new collection of all Emojis.
+     */
+    public Collection<Emoji> getEmojis() {
+        return emojis.byId.values();
+    }
+
+    /**
+     * Gets an Emoji of this catalog by its ID.
+     *
+     * @param id The ID of the Emoji to get.
+     *
+     * @return The emoji.
+     */
+    public Optional<Emoji> getEmojiByID(int id) {
+        return Optional.ofNullable(lookup(Lookup.EMOJI_BY_ID, emojis.byId.get(id)));
+    }
+
+    /**
+     * Gets an Emoji of this catalog by its URL slug.
+     *
+     * @param slug The URL slug of the Emoji to get.
+     *
+     * @return The emoji.
+     */
+    public Optional<Emoji> getEmojiBySlug(String slug) {
+        return Optional.ofNullable(lookup(Lookup.EMOJI_BY_SLUG, emojis.bySlug.get(slug)));
+    }
+
+    /**
+     * Gets all Emojis of this catalog in the category with the given index.
+     *
+     * @param categoryIndex The {@linkplain EmojiCategory#getIndex() index} of the category.
+     *
+     * @return An unmodifiable collection of the emojis in the category.
+     */
+    public Collection<Emoji> getEmojisByCategory(int categoryIndex) {
+        return unmodifiable(emojis.byCategory.get(categoryIndex));
+    }
+
+    /**
+     * Gets all Emojis of this catalog that were submitted by the given name.
+     *
+     * @param submittedBy The name of the submitter.
+     *
+     * @return An unmodifiable collection of the emojis submitted by the name.
+     */
+    public Collection<Emoji> getEmojisBySubmitter(String submittedBy) {
+        return unmodifiable(emojis.bySubmitter.get(submittedBy));
+    }
+
+    /**
+     * Gets all Emojis of this catalog whose title starts with the given prefix, ignoring case.
+     * The emojis are ordered by their title.
+     *
+     * @param prefix The prefix of the title.
+     *
+     * @return A new collection of the emojis whose title starts with the prefix.
+     */
+    public Collection<Emoji> getEmojisByTitlePrefix(String prefix) {
+        String from = EmojiTable.titleKey(prefix);
+        Collection<Emoji> yields = new ArrayList<>();
+
+        for (Set<Emoji> emojis : this.emojis.byTitle.subMap(from, true, from + Character.MAX_VALUE, false).values())
+            yields.addAll(emojis);
+
+        return yields;
+    }
+
+    /**
+     * Gets all EmojiPacks of this catalog.
+     *
+     * @return A new collection of all EmojiPacks.
+     */
+    public Collection<EmojiPack> getEmojiPacks() {
+        return packs.values();
+    }
+
+    /**
+     * Gets an EmojiPack of this catalog by its ID.
+     *
+     * @param id The ID of the EmojiPack to get.
+     *
+     * @return The emoji pack.
+     */
+    public Optional<EmojiPack> getEmojiPackByID(int id) {
+        return Optional.ofNullable(lookup(Lookup.EMOJI_PACK_BY_ID, packs.get(id)));
+    }
+
+    /**
+     * Gets all EmojiCategories of this catalog, ordered by their index.
+     *
+     * @return A new collection of all EmojiCategories.
+     */
+    public Collection<EmojiCategory> getEmojiCategories() {
+        Collection<EmojiCategory> yields = new ArrayList<>(categories.length);
+
+        for (EmojiCategory category : categories)
+            if (category != null)
+                yields.add(category);
+
+        return yields;
+    }
+
+    /**
+     * Gets an EmojiCategory of this catalog by its index.
+     *
+     * @param index The index.
+     *
+     * @return The category, or null if the index could not be found.
+     */
+    public @Nullable EmojiCategory getEmojiCategoryByIndex(int index) {
+        EmojiCategory category = index >= 0 && index < categories.length ? categories[index] : null;
+
+        return lookup(Lookup.EMOJI_CATEGORY_BY_INDEX, category);
+    }
+
+    /**
+     * Gets the category of an Emoji in this catalog. Unlike {@link Emoji#getCategory()}, this never resolves a
+     * category of a newer catalog.
+     *
+     * @param emoji The emoji.
+     *
+     * @return The category of the emoji, if this catalog contains it.
+     */
+    public Optional<EmojiCategory> getEmojiCategoryOf(Emoji emoji) {
+        PromisedValue<Integer, EmojiCategory> link = link(emoji.category());
+
+        return link == null ? Optional.empty() : link.getPossibleValue();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EmojiCatalog(version:%d)", version);
+    }
+
+    /*
+    Reserves the version for a batch. Entities of the batch carry this version if they changed.
+    */
+    static long nextVersion() {
+        return versions.incrementAndGet();
+    }
+
+    /*
+    Publishes a new catalog that replaces parts of the current one, and then notifies all listeners about the change
+    event, if there is one.
+    The replaced parts and their changes are created from the catalog that is actually replaced, while no other batch
+    can publish, so that batches which overlap never report a change against a catalog that was already replaced.
+    If a batch that started later has already been published, the new catalog gets the next free version instead,
+    so that catalog versions keep increasing.
+    */
+    static synchronized EmojiCatalog publish(long version, Function<EmojiCatalog, Replacement> replace) {
+        EmojiCatalog old = current;
+        Replacement replacement = replace.apply(old);
+        EmojiCatalog published = new EmojiCatalog(
+                version > old.version ? version : nextVersion(),
+                replacement.emojis == null ? old.emojis : replacement.emojis,
+                replacement.packs == null ? old.packs : replacement.packs,
+                replacement.categories == null ? old.categories : replacement.categories,
+                old);
+
+        current = published;
+
+        if (replacement.event != null && !listeners.isEmpty())
+            notifyListeners(replacement.event.create(old, published));
+
+        return published;
+    }
+
+    /*
+    Gets the link to the cached category with the given index, which is shared by all emojis of the category.
+    */
+    @Nullable PromisedValue<Integer, EmojiCategory> link(int index) {
+        return index >= 0 && index < links.length ? links[index] : null;
+    }
+
+    /*
+    Gets the emojis of the cached category with the given index.
+    */
+    Collection<Emoji> members(int index) {
+        Collection<Emoji> members = index >= 0 && index < this.members.length ? this.members[index] : null;
+
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    /*
+    Links are only created when a catalog gets new categories, and reused by all later catalogs with the same
+    categories; members are only collected when the emojis or the categories changed. In both cases, no emoji is
+    touched.
+    */
+    @SuppressWarnings("unchecked")
+    private static PromisedValue<Integer, EmojiCategory>[] links(EmojiCategory[] categories) {
+        PromisedValue<Integer, EmojiCategory>[] links
+                = (PromisedValue<Integer, EmojiCategory>[]) new PromisedValue<?, ?>[categories.length];
+
+        for (int index = 0; index < categories.length; index++)
+            if (categories[index] != null)
+                links[index] = PromisedValue.of(index, categories[index]);
+
+        return links;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Collection<Emoji>[] members(EmojiCategory[] categories, EmojiTable emojis) {
+        Collection<Emoji>[] members = (Collection<Emoji>[]) new Collection<?>[categories.length];
+
+        for (int index = 0; index < categories.length; index++)
+            if (categories[index] != null)
+                members[index] = unmodifiable(emojis.byCategory.get(index));
+
+        return members;
+    }
+
+    /*
+    Every listener is notified, even if another one fails. The catalog is already published at this point, so a
+    failure of a listener must not fail the publish; it is handed to the uncaught exception handler of the thread
+    instead.
+    */
+    private static void notifyListeners(Consumer<CatalogListener> notification) {
+        for (CatalogListener listener : listeners)
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                Thread thread = Thread.currentThread();
+
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+    }
+
+    /*
+    Creates the notification of the listeners about a change, once the previous and the published catalog are known.
+    */
+    @FunctionalInterface
+    interface ChangeEvent {
+        Consumer<CatalogListener> create(EmojiCatalog previous, EmojiCatalog current);
+    }
+
+    /*
+    The parts of the current catalog that a batch replaces, and the event about their changes, if there are any.
+    */
+    static final class Replacement {
+        private final @Nullable EmojiTable emojis;
+        private final @Nullable IntIndex<EmojiPack> packs;
+        private final @Nullable EmojiCategory[] categories;
+        private final @Nullable ChangeEvent event;
+
+        private Replacement(
+                @Nullable EmojiTable emojis,
+                @Nullable IntIndex<EmojiPack> packs,
+                @Nullable EmojiCategory[] categories,
+                @Nullable ChangeEvent event
+        ) {
+            this.emojis = emojis;
+            this.packs = packs;
+            this.categories = categories;
+            this.event = event;
+        }
+
+        static Replacement emojis(EmojiTable emojis, @Nullable ChangeEvent event) {
+            return new Replacement(emojis, null, null, event);
+        }
+
+        static Replacement packs(IntIndex<EmojiPack> packs, @Nullable ChangeEvent event) {
+            return new Replacement(null, packs, null, event);
+        }
+
+        static Replacement categories(EmojiCategory[] categories, @Nullable ChangeEvent event) {
+            return new Replacement(null, null, categories, event);
+        }
+    }
+
+    private static <T> @Nullable T lookup(Lookup lookup, @Nullable T result) {
+        Metrics.getListener().onLookup(lookup, result != null);
+
+        return result;
+    }
+
+    private static Collection<Emoji> unmodifiable(@Nullable Set<Emoji> emojis) {
+        return emojis == null ? Collections.emptySet() : Collections.unmodifiableSet(emojis);
+    }
+}
@@ -1,29 +1,35 @@
 package de.kaleidox.discordemoji.model;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
 
 import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.metrics.Metrics;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.Nullable;
 
 /**
  * Representation of an EmojiCategory.
+ * <p>
+ * The cached categories of an {@link EmojiCatalog} are kept in an array that is never modified once it is published;
+ * every change builds a new array and publishes it with a new catalog. Lookups never lock and always see a complete
+ * set of categories.
+ * <p>
+ * The emojis of every cached category are collected once per catalog, when the catalog is published.
  */
 public class EmojiCategory {
-    private static final List<EmojiCategory> cache = new ArrayList<>();
-
     private final String name;
     private final int index;
+    private final long version;
 
-    private EmojiCategory(String name, int index) {
+    private EmojiCategory(String name, int index, long version) {
         this.name = name;
         this.index = index;
-
-        update(index);
+        this.version = version;
     }
 
     /**
@@ -44,32 +50,53 @@ public class EmojiCategory {
         return index;
     }
 
+    /**
+     * Gets all emojis in this category in the current catalog, or none if the current catalog does not cache this
+     * category. This never performs a lookup.
+     * To get the emojis of a pinned catalog, use {@link EmojiCatalog#getEmojisByCategory(int)} instead.
+     *
+     * @return An unmodifiable collection of the emojis in the category.
+     */
+    public Collection<Emoji> getEmojis() {
+        EmojiCatalog catalog = EmojiCatalog.current();
+
+        return index < catalog.categories.length && catalog.categories[index] == this
+                ? catalog.members(index)
+                : Collections.emptySet();
+    }
+
+    /**
+     * Gets the version of the {@link EmojiCatalog} that the emoji category was first published in.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof EmojiCategory
                 && ((EmojiCategory) obj).name.equals(name);
     }
 
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
     @Override
     public String toString() {
         return String.format("EmojiCategory(name:%s)", name);
     }
 
-    @Contract("_ -> this")
-    private EmojiCategory update(int newIndex) {
-        if (cache.size() > newIndex) {
-            EmojiCategory oldValue = cache.get(newIndex);
-            int oldIndex = cache.indexOf(this);
-
-            cache.set(newIndex, this);
-
-            if (oldIndex == -1)
-                cache.add(oldValue);
-            else
-                cache.set(oldIndex, oldValue);
-        } else cache.add(this);
-
-        return this;
+    /**
+     * Gets all cached EmojiCategories, ordered by their index.
+     *
+     * @return A new collection of all cached EmojiCategories.
+     */
+    public static Collection<EmojiCategory> getAll() {
+        return EmojiCatalog.current().getEmojiCategories();
     }
 
     /**
@@ -80,11 +107,12 @@ public class EmojiCategory {
      * @return The category, or null if the index could not be found.
      */
     public static @Nullable EmojiCategory getByIndex(int index) {
-        return cache.get(index);
+        return EmojiCatalog.current().getEmojiCategoryByIndex(index);
     }
 
     /**
-     * Refreshes the emoji-category cache and tries to return the category with the given ID.
+     * Tries to return the category with the given index, refreshing the emoji-category cache only if it is not
+     * already cached.
      * If no such category could be found, the returned future completes with {@code null}.
      *
      * @param index The ID of the EmojiCategory to get.
@@ -92,15 +120,109 @@ public class EmojiCategory {
      * @return The category, or null if the index could not be found.
      */
     public static CompletableFuture<EmojiCategory> requestByIndex(int index) {
-        return DiscordEmoji.refreshEmojiCache()
+        EmojiCategory cached = getByIndex(index);
+
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        return DiscordEmoji.refreshEmojiCategoryCache()
                 .thenApply(categories -> getByIndex(index));
     }
 
-    private static EmojiCategory getOrCreate(JsonNode data, int index) {
-        EmojiCategory cat;
+    static EntityMaterializer.Batch<EmojiCategory> batch() {
+        return new Batch(false);
+    }
+
+    static EntityMaterializer.Batch<EmojiCategory> merge() {
+        return new Batch(true);
+    }
 
-        if (cache.size() > index && (cat = cache.get(index)) != null)
-            return cat.update(index);
-        else return new EmojiCategory(data.asText(), index);
+    /*
+    Builds the category array of a new catalog version; categories that keep their name at their index are reused.
+    A category that changes its name is a different category, so categories are only ever added or removed.
+    If another batch published categories while this batch was built, the array is built again on top of the
+    categories that are actually replaced, and the changes are computed against them.
+    */
+    private static final class Batch implements EntityMaterializer.Batch<EmojiCategory> {
+        private final EmojiCategory[] base = EmojiCatalog.current().categories;
+        private final long version = EmojiCatalog.nextVersion();
+        private final boolean merge;
+        private final Collection<EmojiCategory> entries = new ArrayList<>();
+        private final Collection<EmojiCategory> added = new ArrayList<>();
+        private final Collection<EmojiCategory> removed = new ArrayList<>();
+        private EmojiCategory[] categories;
+        private int unchanged = 0;
+
+        private Batch(boolean merge) {
+            this.merge = merge;
+            this.categories = merge ? base.clone() : new EmojiCategory[0];
+        }
+
+        @Override
+        public EmojiCategory add(JsonNode data, int index) {
+            EmojiCategory category = index < base.length ? base[index] : null;
+            String name = data.asText();
+
+            category = put(base, category != null && category.name.equals(name)
+                    ? category
+                    : new EmojiCategory(name, index, version));
+            entries.add(category);
+            return category;
+        }
+
+        @Override
+        public Collection<EmojiCategory> publish() {
+            EmojiCatalog published = EmojiCatalog.publish(version, this::replace);
+
+            Metrics.getListener().onMaterialize(EmojiCategory.class, added.size(), 0, unchanged, removed.size());
+
+            return published.getEmojiCategories();
+        }
+
+        private EmojiCatalog.Replacement replace(EmojiCatalog previous) {
+            EmojiCategory[] replaced = previous.categories;
+
+            if (replaced != base) {
+                categories = merge ? replaced.clone() : new EmojiCategory[0];
+                for (EmojiCategory entry : entries)
+                    put(replaced, entry);
+            }
+
+            for (int index = 0; index < Math.max(replaced.length, categories.length); index++) {
+                EmojiCategory old = index < replaced.length ? replaced[index] : null;
+                EmojiCategory category = index < categories.length ? categories[index] : null;
+
+                if (old == category) {
+                    if (category != null)
+                        unchanged++;
+                    continue;
+                }
+                if (old != null)
+                    removed.add(old);
+                if (category != null)
+                    added.add(category);
+            }
+
+            return EmojiCatalog.Replacement.categories(categories,
+                    added.isEmpty() && removed.isEmpty() ? null : (old, current) -> {
+                        CatalogChange<EmojiCategory> change
+                                = new CatalogChange<>(old, current, added, removed, Collections.emptyList());
+
+                        return listener -> listener.onEmojiCategoryChange(change);
+                    });
+        }
+
+        /*
+        Puts the category at its index, or the category of the given array if it has the same name there.
+        */
+        private EmojiCategory put(EmojiCategory[] previous, EmojiCategory entry) {
+            int index = entry.index;
+            EmojiCategory category = index < previous.length ? previous[index] : null;
+
+            if (index >= categories.length)
+                categories = Arrays.copyOf(categories, index + 1);
+            categories[index] = category != null && category.name.equals(entry.name) ? category : entry;
+            return categories[index];
+        }
     }
 }
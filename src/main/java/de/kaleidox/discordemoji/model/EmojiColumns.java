@@ -0,0 +1,163 @@
+package de.kaleidox.discordemoji.model;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.Nullable;
+
+/*
+Columnar storage of the emojis of one catalog version; every emoji occupies one row.
+
+Numeric values are kept in one int array per field. License, source and submitter names repeat a lot and are
+dictionary-encoded, while the other texts are packed into a shared byte arena and referenced by offset.
+
+Rows are only added while the catalog is built; afterwards the columns are trimmed, never modified again, and read
+without any synchronization.
+*/
+final class EmojiColumns {
+    private final StringDictionary dictionary = new StringDictionary();
+    private final ByteArena arena;
+
+    private int rows = 0;
+    private int[] id;
+    private int[] category;
+    private int[] faves;
+    private int[] width;
+    private int[] height;
+    private int[] filesize;
+    private int[] license;
+    private int[] source;
+    private int[] submittedBy;
+    private int[] title;
+    private int[] slug;
+    private int[] image;
+    private int[] description;
+
+    EmojiColumns(int capacity) {
+        capacity = Math.max(capacity, 16);
+
+        this.arena = new ByteArena(capacity * 128);
+        this.id = new int[capacity];
+        this.category = new int[capacity];
+        this.faves = new int[capacity];
+        this.width = new int[capacity];
+        this.height = new int[capacity];
+        this.filesize = new int[capacity];
+        this.license = new int[capacity];
+        this.source = new int[capacity];
+        this.submittedBy = new int[capacity];
+        this.title = new int[capacity];
+        this.slug = new int[capacity];
+        this.image = new int[capacity];
+        this.description = new int[capacity];
+    }
+
+    int add(EmojiData data) {
+        if (rows == id.length) {
+            int capacity = rows + (rows >> 1);
+
+            id = Arrays.copyOf(id, capacity);
+            category = Arrays.copyOf(category, capacity);
+            faves = Arrays.copyOf(faves, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+            filesize = Arrays.copyOf(filesize, capacity);
+            license = Arrays.copyOf(license, capacity);
+            source = Arrays.copyOf(source, capacity);
+            submittedBy = Arrays.copyOf(submittedBy, capacity);
+            title = Arrays.copyOf(title, capacity);
+            slug = Arrays.copyOf(slug, capacity);
+            image = Arrays.copyOf(image, capacity);
+            description = Arrays.copyOf(description, capacity);
+        }
+
+        int row = rows++;
+
+        id[row] = data.id;
+        category[row] = data.category;
+        faves[row] = data.faves;
+        width[row] = data.width;
+        height[row] = data.height;
+        filesize[row] = data.filesize;
+        license[row] = dictionary.encode(data.license);
+        source[row] = dictionary.encode(data.source);
+        submittedBy[row] = dictionary.encode(data.submittedBy);
+        title[row] = arena.add(data.title);
+        slug[row] = arena.add(data.slug);
+        image[row] = arena.add(data.image);
+        description[row] = arena.add(data.description);
+
+        return row;
+    }
+
+    /*
+    Releases the spare capacity once all rows were added.
+    */
+    void trim() {
+        id = Arrays.copyOf(id, rows);
+        category = Arrays.copyOf(category, rows);
+        faves = Arrays.copyOf(faves, rows);
+        width = Arrays.copyOf(width, rows);
+        height = Arrays.copyOf(height, rows);
+        filesize = Arrays.copyOf(filesize, rows);
+        license = Arrays.copyOf(license, rows);
+        source = Arrays.copyOf(source, rows);
+        submittedBy = Arrays.copyOf(submittedBy, rows);
+        title = Arrays.copyOf(title, rows);
+        slug = Arrays.copyOf(slug, rows);
+        image = Arrays.copyOf(image, rows);
+        description = Arrays.copyOf(description, rows);
+        arena.trim();
+    }
+
+    int id(int row) {
+        return id[row];
+    }
+
+    int category(int row) {
+        return category[row];
+    }
+
+    int faves(int row) {
+        return faves[row];
+    }
+
+    int width(int row) {
+        return width[row];
+    }
+
+    int height(int row) {
+        return height[row];
+    }
+
+    int filesize(int row) {
+        return filesize[row];
+    }
+
+    @Nullable String license(int row) {
+        return dictionary.decode(license[row]);
+    }
+
+    @Nullable String source(int row) {
+        return dictionary.decode(source[row]);
+    }
+
+    @Nullable String submittedBy(int row) {
+        return dictionary.decode(submittedBy[row]);
+    }
+
+    @Nullable String title(int row) {
+        return arena.get(title[row]);
+    }
+
+    @Nullable String slug(int row) {
+        return arena.get(slug[row]);
+    }
+
+    @Nullable String image(int row) {
+        return arena.get(image[row]);
+    }
+
+    @Nullable String description(int row) {
+        return arena.get(description[row]);
+    }
+}
@@ -0,0 +1,124 @@
+package de.kaleidox.discordemoji.model;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.jetbrains.annotations.Nullable;
+
+/*
+The plain field values of an emoji, as read from a single element of the emoji list.
+Missing fields fall back to the values of the previous version of the emoji.
+The image URL is only parsed if it differs from the previous one.
+*/
+final class EmojiData {
+    final int id;
+    final String title;
+    final String slug;
+    final String image;
+    final String description;
+    final int category;
+    final String license;
+    final String source;
+    final int faves;
+    final String submittedBy;
+    final int width;
+    final int height;
+    final int filesize;
+    final @Nullable URL imageUrl;
+
+    private EmojiData(JsonNode data, @Nullable Emoji previous) throws MalformedURLException {
+        this.id = data.path("id").asInt(previous == null ? 0 : previous.getId());
+        this.title = data.path("title").asText(previous == null ? null : previous.getTitle());
+        this.slug = data.path("slug").asText(previous == null ? null : previous.getSlug());
+        this.image = data.path("image").asText();
+        this.description = data.path("description").asText(previous == null ? null : previous.getDescription());
+        this.category = data.path("category").asInt(previous == null ? 0 : previous.category());
+        this.license = data.path("license").asText(previous == null ? null : previous.license());
+        this.source = data.path("source").asText(previous == null ? null : previous.source());
+        this.faves = data.path("faves").asInt(previous == null ? 0 : previous.getFaves());
+        this.submittedBy = data.path("submitted_by").asText(previous == null ? null : previous.getSubmittedBy());
+        this.width = data.path("width").asInt(previous == null ? 0 : previous.width());
+        this.height = data.path("height").asInt(previous == null ? 0 : previous.height());
+        this.filesize = data.path("filesize").asInt(previous == null ? 0 : previous.filesize());
+
+        this.imageUrl = previous == null || !image.equals(previous.image()) ? new URL(image) : null;
+    }
+
+    private EmojiData(Emoji emoji) {
+        this.id = emoji.getId();
+        this.title = emoji.getTitle();
+        this.slug = emoji.getSlug();
+        this.image = emoji.image();
+        this.description = emoji.getDescription();
+        this.category = emoji.category();
+        this.license = emoji.license();
+        this.source = emoji.source();
+        this.faves = emoji.getFaves();
+        this.submittedBy = emoji.getSubmittedBy();
+        this.width = emoji.width();
+        this.height = emoji.height();
+        this.filesize = emoji.filesize();
+        this.imageUrl = null;
+    }
+
+    /*
+    Whether the given emoji holds exactly these values.
+    Must only be called with the emoji that these values were read against; the image is unchanged if its URL did
+    not have to be parsed.
+    */
+    boolean matches(Emoji emoji) {
+        return imageUrl == null
+                && id == emoji.getId()
+                && category == emoji.category()
+                && faves == emoji.getFaves()
+                && width == emoji.width()
+                && height == emoji.height()
+                && filesize == emoji.filesize()
+                && Objects.equals(title, emoji.getTitle())
+                && Objects.equals(slug, emoji.getSlug())
+                && Objects.equals(description, emoji.getDescription())
+                && Objects.equals(license, emoji.license())
+                && Objects.equals(source, emoji.source())
+                && Objects.equals(submittedBy, emoji.getSubmittedBy());
+    }
+
+    /*
+    The names of all fields that differ from the given emoji, with the same restriction as matches().
+    */
+    Set<String> changes(Emoji emoji) {
+        Set<String> changes = new LinkedHashSet<>();
+
+        change(changes, "id", id == emoji.getId());
+        change(changes, "title", Objects.equals(title, emoji.getTitle()));
+        change(changes, "slug", Objects.equals(slug, emoji.getSlug()));
+        change(changes, "image", imageUrl == null);
+        change(changes, "description", Objects.equals(description, emoji.getDescription()));
+        change(changes, "category", category == emoji.category());
+        change(changes, "license", Objects.equals(license, emoji.license()));
+        change(changes, "source", Objects.equals(source, emoji.source()));
+        change(changes, "faves", faves == emoji.getFaves());
+        change(changes, "submitted_by", Objects.equals(submittedBy, emoji.getSubmittedBy()));
+        change(changes, "width", width == emoji.width());
+        change(changes, "height", height == emoji.height());
+        change(changes, "filesize", filesize == emoji.filesize());
+
+        return changes;
+    }
+
+    static EmojiData read(JsonNode data, @Nullable Emoji previous) throws MalformedURLException {
+        return new EmojiData(data, previous);
+    }
+
+    static EmojiData of(Emoji emoji) {
+        return new EmojiData(emoji);
+    }
+
+    private static void change(Set<String> changes, String field, boolean unchanged) {
+        if (!unchanged)
+            changes.add(field);
+    }
+}
@@ -1,35 +1,54 @@
 package de.kaleidox.discordemoji.model;
 
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.metrics.Metrics;
+import de.kaleidox.util.IntIndex;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
-import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Representation of an EmojiPack.
+ * <p>
+ * EmojiPacks are immutable; a refresh that changes a pack publishes a new EmojiPack object in a new
+ * {@link EmojiCatalog}.
  */
 public class EmojiPack {
-    private static final Map<Integer, EmojiPack> cache = new ConcurrentHashMap<>();
+    @JsonProperty(required = true) private final int id;
+    @JsonProperty(required = true) private final String name;
+    @JsonProperty private final String description;
+    @JsonProperty private final String slug;
+    @JsonProperty("image") private final URL imageUrl;
+    @JsonProperty(value = "download", required = true) private final URL downloadUrl;
+    @JsonProperty("amount") private final int size;
 
-    @JsonProperty(required = true) private int id;
-    @JsonProperty(required = true) private String name;
-    @JsonProperty private String description;
-    @JsonProperty private String slug;
-    @JsonProperty("image") private URL imageUrl;
-    @JsonProperty(value = "download", required = true) private URL downloadUrl;
-    @JsonProperty("amount") private int size;
+    private final long version;
 
-    private EmojiPack(JsonNode data) {
-        cache.put(id, update(data));
+    /*
+    Missing fields fall back to the values of the previous version of the pack.
+    */
+    private EmojiPack(JsonNode data, @Nullable EmojiPack previous, long version) throws MalformedURLException {
+        this.id = data.path("id").asInt(previous == null ? 0 : previous.id);
+        this.name = data.path("name").asText(previous == null ? null : previous.name);
+        this.description = data.path("description").asText(previous == null ? null : previous.description);
+        this.slug = data.path("slug").asText(previous == null ? null : previous.slug);
+        this.imageUrl = url(data.path("image").asText(), previous == null ? null : previous.imageUrl);
+        this.downloadUrl = url(data.path("download").asText(), previous == null ? null : previous.downloadUrl);
+        this.size = data.path("amount").asInt(previous == null ? 0 : previous.size);
+        this.version = previous != null && changes(previous).isEmpty() ? previous.version : version;
     }
 
     /**
@@ -95,40 +114,63 @@ public class EmojiPack {
         return size;
     }
 
+    /**
+     * Gets the version of the {@link EmojiCatalog} that this state of the emoji pack was first published in.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return obj instanceof EmojiPack
                 && ((EmojiPack) obj).id == id;
     }
 
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return String.format("EmojiPack(id:%d,name:%s)", id, name);
     }
 
-    @Contract("!null -> this; null -> fail")
-    private EmojiPack update(JsonNode data) {
-        String str;
-
-        try {
-            this.id = data.path("id").asInt(id);
-            this.name = data.path("name").asText(name);
-            this.description = data.path("description").asText(description);
-            this.slug = data.path("slug").asText(slug);
-            this.imageUrl = (str = data.path("image").asText())
-                    .equals(imageUrl == null ? null : imageUrl.toExternalForm())
-                    ? imageUrl
-                    : new URL(str);
-            this.downloadUrl = (str = data.path("download").asText())
-                    .equals(downloadUrl == null ? null : downloadUrl.toExternalForm())
-                    ? downloadUrl
-                    : new URL(str);
-            this.size = data.path("amount").asInt(size);
-        } catch (Throwable e) {
-            throw new RuntimeException(toString() + " Update Exception", e);
-        }
+    /*
+    The names of all fields that differ from the other pack.
+    URLs are compared by identity, because unchanged URLs are taken over from the previous version.
+    */
+    private Set<String> changes(EmojiPack other) {
+        Set<String> changes = new LinkedHashSet<>();
+
+        if (id != other.id)
+            changes.add("id");
+        if (!Objects.equals(name, other.name))
+            changes.add("name");
+        if (!Objects.equals(description, other.description))
+            changes.add("description");
+        if (!Objects.equals(slug, other.slug))
+            changes.add("slug");
+        if (imageUrl != other.imageUrl)
+            changes.add("image");
+        if (downloadUrl != other.downloadUrl)
+            changes.add("download");
+        if (size != other.size)
+            changes.add("amount");
 
-        return this;
+        return changes;
+    }
+
+    /**
+     * Gets all cached EmojiPacks.
+     *
+     * @return A new collection of all cached EmojiPacks.
+     */
+    public static Collection<EmojiPack> getAll() {
+        return EmojiCatalog.current().getEmojiPacks();
     }
 
     /**
@@ -141,16 +183,30 @@ public class EmojiPack {
      * @return The emoji pack.
      */
     public static Optional<EmojiPack> getByID(int id) {
-        return (cache.size() > 2000
-                ? cache.entrySet().parallelStream()
-                : cache.entrySet().stream())
-                .filter(entry -> entry.getKey() == id)
-                .findFirst()
-                .map(Map.Entry::getValue);
+        return EmojiCatalog.current().getEmojiPackByID(id);
     }
 
     /**
-     * Refreshes the emoji-pack cache and tries to return the pack with the given ID.
+     * Gets several EmojiPacks from the cache by their IDs.
+     * The returned array has the same length as the given array; every position holds the EmojiPack with the ID at the
+     * same position, or {@code null} if no such EmojiPack is cached.
+     *
+     * @param ids The IDs of the EmojiPacks to get.
+     *
+     * @return An array of the EmojiPacks.
+     */
+    public static EmojiPack[] getByIDs(int... ids) {
+        IntIndex<EmojiPack> cache = EmojiCatalog.current().packs;
+        EmojiPack[] yields = new EmojiPack[ids.length];
+
+        for (int i = 0; i < ids.length; i++)
+            yields[i] = cache.get(ids[i]);
+
+        return yields;
+    }
+
+    /**
+     * Tries to return the pack with the given ID, refreshing the emoji-pack cache only if it is not already cached.
      * If no such pack could be found, the returned future completes
      * {@linkplain CompletableFuture#exceptionally(Function) exceptionally} with a {@link NoSuchElementException}.
      *
@@ -159,15 +215,133 @@ public class EmojiPack {
      * @return The EmojiPack.
      */
     public static CompletableFuture<EmojiPack> requestByID(int id) {
-        return DiscordEmoji.refreshEmojiCache()
+        EmojiPack cached = EmojiCatalog.current().packs.get(id);
+
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        return DiscordEmoji.refreshEmojiPackCache()
                 .thenApply(packs -> getByID(id))
                 .thenApply(pack -> pack.orElseThrow(() ->
                         new NoSuchElementException("No pack with ID [" + id + "] was found!")));
     }
 
-    private static EmojiPack getOrCreate(JsonNode data) {
-        return cache.compute(data.get("id").asInt(), (id, pack) -> pack == null
-                ? new EmojiPack(data)
-                : pack.update(data));
+    /*
+    Reuses the previous URL if it is unchanged, so that unchanged packs can be detected by identity.
+    */
+    private static URL url(String str, @Nullable URL previous) throws MalformedURLException {
+        return previous != null && str.equals(previous.toExternalForm()) ? previous : new URL(str);
+    }
+
+    static EntityMaterializer.Batch<EmojiPack> batch() {
+        return new Batch(false);
+    }
+
+    static EntityMaterializer.Batch<EmojiPack> merge() {
+        return new Batch(true);
+    }
+
+    /*
+    Builds the pack index of a new catalog version; unchanged packs are reused.
+    A batch that is not merged replaces all packs.
+    If another batch published packs while this batch was built, the index is built again on top of the packs that
+    are actually replaced, and the changes are computed against them.
+    */
+    private static final class Batch implements EntityMaterializer.Batch<EmojiPack> {
+        private final IntIndex<EmojiPack> base = EmojiCatalog.current().packs;
+        private final long version = EmojiCatalog.nextVersion();
+        private final boolean merge;
+        private final Collection<EmojiPack> entries = new ArrayList<>();
+        private final Collection<EmojiPack> added = new ArrayList<>();
+        private final Collection<EmojiPack> removed = new ArrayList<>();
+        private final Collection<CatalogChange.Update<EmojiPack>> updated = new ArrayList<>();
+        private IntIndex<EmojiPack> packs = new IntIndex<>();
+        private int unchanged = 0;
+
+        private Batch(boolean merge) {
+            this.merge = merge;
+
+            if (merge)
+                for (EmojiPack pack : base.values())
+                    packs.put(pack.id, pack);
+        }
+
+        @Override
+        public EmojiPack add(JsonNode data, int index) {
+            EmojiPack previous = base.get(data.path("id").asInt());
+            EmojiPack pack;
+
+            try {
+                pack = new EmojiPack(data, previous, version);
+            } catch (Throwable e) {
+                throw new RuntimeException((previous == null ? "EmojiPack" : previous) + " Update Exception", e);
+            }
+
+            if (previous == null)
+                added.add(pack);
+            else if (pack.version == previous.version) {
+                pack = previous;
+                unchanged++;
+            }
+            else updated.add(new CatalogChange.Update<>(previous, pack, pack.changes(previous)));
+
+            packs.put(pack.id, pack);
+            entries.add(pack);
+            return pack;
+        }
+
+        @Override
+        public Collection<EmojiPack> publish() {
+            EmojiCatalog.publish(version, this::replace);
+            Metrics.getListener()
+                    .onMaterialize(EmojiPack.class, added.size(), updated.size(), unchanged, removed.size());
+
+            return packs.values();
+        }
+
+        private EmojiCatalog.Replacement replace(EmojiCatalog previous) {
+            if (previous.packs != base)
+                rebase(previous.packs);
+
+            if (!merge)
+                for (EmojiPack pack : previous.packs.values())
+                    if (packs.get(pack.id) == null)
+                        removed.add(pack);
+
+            return EmojiCatalog.Replacement.packs(packs,
+                    added.isEmpty() && removed.isEmpty() && updated.isEmpty() ? null : (old, current) -> {
+                        CatalogChange<EmojiPack> change = new CatalogChange<>(old, current, added, removed, updated);
+
+                        return listener -> listener.onEmojiPackChange(change);
+                    });
+        }
+
+        /*
+        Builds the index again from the packs that are replaced, and compares the entries of this batch with them.
+        */
+        private void rebase(IntIndex<EmojiPack> replaced) {
+            packs = new IntIndex<>();
+            added.clear();
+            updated.clear();
+            unchanged = 0;
+
+            if (merge)
+                for (EmojiPack pack : replaced.values())
+                    packs.put(pack.id, pack);
+
+            for (EmojiPack entry : entries) {
+                EmojiPack previous = replaced.get(entry.id);
+                Set<String> changes = previous == null ? null : entry.changes(previous);
+                EmojiPack pack = changes != null && changes.isEmpty() ? previous : entry;
+
+                packs.put(pack.id, pack);
+
+                if (changes == null)
+                    added.add(pack);
+                else if (changes.isEmpty())
+                    unchanged++;
+                else updated.add(new CatalogChange.Update<>(previous, pack, changes));
+            }
+        }
     }
 }
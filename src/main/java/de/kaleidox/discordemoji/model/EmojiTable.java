@@ -0,0 +1,88 @@
+package de.kaleidox.discordemoji.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import de.kaleidox.util.IntIndex;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
+
+/*
+All emojis of one catalog version, together with their indexes.
+A table is only modified by its builder, and never after it was built.
+*/
+final class EmojiTable {
+    static final EmojiTable EMPTY = new Builder(null).build();
+
+    final IntIndex<Emoji> byId = new IntIndex<>();
+    final Map<String, Emoji> bySlug = new HashMap<>();
+    final Map<Integer, Set<Emoji>> byCategory = new HashMap<>();
+    final Map<String, Set<Emoji>> bySubmitter = new HashMap<>();
+    final NavigableMap<String, Set<Emoji>> byTitle = new TreeMap<>();
+    final @Nullable EmojiColumns columns;
+
+    private EmojiTable(@Nullable EmojiColumns columns) {
+        this.columns = columns;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    @Contract("null -> null; !null -> !null")
+    static String titleKey(@Nullable String title) {
+        return title == null ? null : title.toLowerCase(Locale.ROOT);
+    }
+
+    static final class Builder {
+        private final EmojiTable table;
+
+        Builder(@Nullable EmojiColumns columns) {
+            this.table = new EmojiTable(columns);
+        }
+
+        @Nullable EmojiColumns columns() {
+            return table.columns;
+        }
+
+        void add(Emoji emoji) {
+            Emoji replaced = table.byId.put(emoji.getId(), emoji);
+
+            if (replaced != null) {
+                table.bySlug.remove(replaced.getSlug(), replaced);
+                remove(table.byCategory, replaced.category(), replaced);
+                remove(table.bySubmitter, replaced.getSubmittedBy(), replaced);
+                remove(table.byTitle, titleKey(replaced.getTitle()), replaced);
+            }
+
+            if (emoji.getSlug() != null)
+                table.bySlug.put(emoji.getSlug(), emoji);
+            add(table.byCategory, emoji.category(), emoji);
+            add(table.bySubmitter, emoji.getSubmittedBy(), emoji);
+            add(table.byTitle, titleKey(emoji.getTitle()), emoji);
+        }
+
+        EmojiTable build() {
+            return table;
+        }
+
+        private static <K> void add(Map<K, Set<Emoji>> index, @Nullable K key, Emoji emoji) {
+            if (key != null)
+                index.computeIfAbsent(key, any -> new LinkedHashSet<>()).add(emoji);
+        }
+
+        private static <K> void remove(Map<K, Set<Emoji>> index, @Nullable K key, Emoji emoji) {
+            if (key != null)
+                index.computeIfPresent(key, (any, emojis) -> {
+                    emojis.remove(emoji);
+                    return emojis.isEmpty() ? null : emojis;
+                });
+        }
+    }
+}
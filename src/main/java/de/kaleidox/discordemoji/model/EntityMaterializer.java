@@ -0,0 +1,78 @@
+package de.kaleidox.discordemoji.model;
+
+import java.util.Collection;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Creates or updates the cached entities that are described by the elements of a response.
+ * <p>
+ * Elements are always materialized in {@linkplain Batch batches}, and every batch publishes all of its entities at
+ * once. Implementations for all model classes are available in {@link Materializers}; they are used by the refresh
+ * methods of {@link DiscordEmoji}.
+ *
+ * @param <T> Type-variable for the entity.
+ */
+public interface EntityMaterializer<T> {
+    /**
+     * Starts a batch that materializes all elements of a response, and replaces all cached entities with them.
+     *
+     * @return A new batch.
+     */
+    Batch<T> batch();
+
+    /**
+     * Starts a batch that adds its entities to the cached entities, or updates the cached entities that they
+     * describe; cached entities that are not part of the batch are kept.
+     * Like every batch, a merging batch publishes all of its entities at once, so that the cached entities are only
+     * copied once per batch.
+     *
+     * @return A new batch.
+     */
+    Batch<T> merge();
+
+    /**
+     * Creates or updates the cached entities described by all elements of a response within a single
+     * {@linkplain #batch() batch}.
+     * The position of each element within the given array is its index; positions without an element are null.
+     *
+     * @param data The data of all entities.
+     *
+     * @return The created or updated entities.
+     */
+    default Collection<T> materializeAll(JsonNode[] data) {
+        Batch<T> batch = batch();
+
+        for (int index = 0; index < data.length; index++)
+            if (data[index] != null)
+                batch.add(data[index], index);
+
+        return batch.publish();
+    }
+
+    /**
+     * A set of elements of one response that are materialized together.
+     *
+     * @param <T> Type-variable for the entity.
+     */
+    interface Batch<T> {
+        /**
+         * Adds the data of a single entity to the batch.
+         *
+         * @param data  The data of a single entity.
+         * @param index The position of the data within the response.
+         *
+         * @return The entity as it is going to be published.
+         */
+        T add(JsonNode data, int index);
+
+        /**
+         * Publishes all entities of the batch. The batch must not be used afterwards.
+         *
+         * @return The created or updated entities.
+         */
+        Collection<T> publish();
+    }
+}
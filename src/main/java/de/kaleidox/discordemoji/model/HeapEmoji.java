@@ -0,0 +1,112 @@
+package de.kaleidox.discordemoji.model;
+
+import java.net.URL;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/*
+An emoji that keeps all of its values in its own fields.
+*/
+final class HeapEmoji extends Emoji {
+    @JsonProperty(required = true) private final int id;
+    @JsonProperty(required = true) private final String title;
+    @JsonProperty private final String slug;
+    @JsonProperty(value = "image", required = true) private final URL imageUrl;
+    @JsonProperty private final String description;
+    @JsonProperty private final int category;
+    @JsonProperty private final String license;
+    @JsonProperty private final String source;
+    @JsonProperty private final int faves;
+    @JsonProperty("submitted_by") private final String submittedBy;
+    @JsonProperty private final int width;
+    @JsonProperty private final int height;
+    @JsonProperty private final int filesize;
+
+    HeapEmoji(EmojiData data, URL imageUrl, long version) {
+        super(version);
+
+        this.id = data.id;
+        this.title = data.title;
+        this.slug = data.slug;
+        this.imageUrl = imageUrl;
+        this.description = data.description;
+        this.category = data.category;
+        this.license = data.license;
+        this.source = data.source;
+        this.faves = data.faves;
+        this.submittedBy = data.submittedBy;
+        this.width = data.width;
+        this.height = data.height;
+        this.filesize = data.filesize;
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public String getSlug() {
+        return slug;
+    }
+
+    @Override
+    public URL getImageURL() {
+        return imageUrl;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public int getFaves() {
+        return faves;
+    }
+
+    @Override
+    public String getSubmittedBy() {
+        return submittedBy;
+    }
+
+    @Override
+    int category() {
+        return category;
+    }
+
+    @Override
+    String license() {
+        return license;
+    }
+
+    @Override
+    String source() {
+        return source;
+    }
+
+    @Override
+    int width() {
+        return width;
+    }
+
+    @Override
+    int height() {
+        return height;
+    }
+
+    @Override
+    int filesize() {
+        return filesize;
+    }
+
+    @Override
+    String image() {
+        return imageUrl == null ? null : imageUrl.toExternalForm();
+    }
+}
@@ -0,0 +1,53 @@
+package de.kaleidox.discordemoji.model;
+
+import java.util.function.Supplier;
+
+/**
+ * Registry of the {@link EntityMaterializer}s of all cached model classes.
+ * <p>
+ * Every {@linkplain EntityMaterializer#batch() batch} of these materializers builds a new {@link EmojiCatalog} that
+ * only contains the entities of the batch, and publishes it at once. A {@linkplain EntityMaterializer#merge() merging
+ * batch} publishes a new catalog that contains all previously cached entities and those of the batch; this has to copy
+ * the cached entities once per batch.
+ */
+public final class Materializers {
+    /**
+     * The materializer for {@link Emoji}s.
+     */
+    public static final EntityMaterializer<Emoji> EMOJI
+            = of(Emoji::batch, Emoji::merge);
+
+    /**
+     * The materializer for {@link EmojiPack}s.
+     */
+    public static final EntityMaterializer<EmojiPack> EMOJI_PACK
+            = of(EmojiPack::batch, EmojiPack::merge);
+
+    /**
+     * The materializer for {@link EmojiCategory EmojiCategories}.
+     * The index of the data is used as the {@linkplain EmojiCategory#getIndex() index of the category}.
+     */
+    public static final EntityMaterializer<EmojiCategory> EMOJI_CATEGORY
+            = of(EmojiCategory::batch, EmojiCategory::merge);
+
+    private Materializers() {
+        // nope
+    }
+
+    private static <T> EntityMaterializer<T> of(
+            Supplier<EntityMaterializer.Batch<T>> batch,
+            Supplier<EntityMaterializer.Batch<T>> merge
+    ) {
+        return new EntityMaterializer<T>() {
+            @Override
+            public Batch<T> batch() {
+                return batch.get();
+            }
+
+            @Override
+            public Batch<T> merge() {
+                return merge.get();
+            }
+        };
+    }
+}
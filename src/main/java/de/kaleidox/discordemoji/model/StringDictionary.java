@@ -0,0 +1,41 @@
+package de.kaleidox.discordemoji.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+
+/*
+Assigns a dense int code to every distinct string; the code of null is -1.
+Codes are never released, which is fine for low-cardinality values like licenses and submitter names.
+Not thread-safe; callers guard it with their own lock.
+*/
+final class StringDictionary {
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int encode(@Nullable String value) {
+        if (value == null)
+            return -1;
+
+        Integer code = codes.get(value);
+
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+
+        return code;
+    }
+
+    @Nullable String decode(int code) {
+        return code == -1 ? null : values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+}
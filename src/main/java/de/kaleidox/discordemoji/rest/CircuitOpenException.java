@@ -0,0 +1,30 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request while the circuit breaker of an {@link Endpoint} is open, because recent
+ * requests to it failed.
+ *
+ * @see RequestPolicy
+ */
+public final class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final Endpoint endpoint;
+
+    CircuitOpenException(Endpoint endpoint) {
+        super("Circuit of endpoint " + endpoint + " is open after repeated failures");
+
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Gets the endpoint whose circuit is open.
+     *
+     * @return The endpoint.
+     */
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+}
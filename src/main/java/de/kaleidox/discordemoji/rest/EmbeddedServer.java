@@ -0,0 +1,184 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server that stands in for https://emoji.gg/ by serving recorded responses from a directory, using the
+ * same file layout as {@link ReplayTransport}.
+ * <p>
+ * Unlike the replay transport, requests go through a real HTTP connection, so that the whole client stack including
+ * OkHttp is exercised. {@linkplain #setFaults(TransportFaults) Faults} are injected on the server side, and
+ * responses are gzip-compressed if the client accepts it.
+ * Use {@link #transport()} to send all requests to this server; it is closed together with the server.
+ */
+public final class EmbeddedServer implements Closeable {
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    private final Path directory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final OkHttpTransport client;
+    private final Transport transport;
+
+    private volatile TransportFaults faults = TransportFaults.NONE;
+
+    /**
+     * Starts a server on a free port of the loopback interface, whose transport uses the
+     * {@linkplain HttpClientConfig#DEFAULT default configuration}.
+     *
+     * @param directory The directory of the recorded responses.
+     *
+     * @throws IOException If the server could not be started.
+     */
+    public EmbeddedServer(Path directory) throws IOException {
+        this(directory, HttpClientConfig.DEFAULT);
+    }
+
+    /**
+     * Starts a server on a free port of the loopback interface.
+     *
+     * @param directory The directory of the recorded responses.
+     * @param config    The configuration of the HTTP client of the {@linkplain #transport() transport}.
+     *
+     * @throws IOException If the server could not be started.
+     */
+    public EmbeddedServer(Path directory, HttpClientConfig config) throws IOException {
+        this.directory = directory;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "DiscordEmoji-StandIn-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        this.client = new OkHttpTransport(config);
+        this.transport = new Transport() {
+            @Override
+            public <T> CompletableFuture<T> get(URL url, Map<String, String> headers, ResponseHandler<T> handler) {
+                URL local;
+
+                try {
+                    local = new URL("http", server.getAddress().getHostString(), getPort(),
+                            "/" + ReplayTransport.getFileName(url));
+                } catch (MalformedURLException e) {
+                    CompletableFuture<T> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new RuntimeException("RequestException", e));
+                    return failed;
+                }
+
+                return client.get(local, headers, handler);
+            }
+        };
+    }
+
+    /**
+     * Sets the faults to inject into all following responses.
+     *
+     * @param faults The faults.
+     */
+    public void setFaults(TransportFaults faults) {
+        this.faults = faults;
+    }
+
+    /**
+     * Gets the port the server listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets the transport that sends every request to this server instead of its original host.
+     *
+     * @return The transport.
+     */
+    public Transport transport() {
+        return transport;
+    }
+
+    /**
+     * Stops the server and closes its transport.
+     */
+    @Override
+    public void close() {
+        client.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        TransportFaults faults = this.faults;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(faults.nextLatency());
+
+            if (faults.nextError()) {
+                // status 0 simulates a lost connection: close without any response
+                if (faults.errorStatus() != 0)
+                    exchange.sendResponseHeaders(faults.errorStatus(), -1);
+                return;
+            }
+
+            String name = exchange.getRequestURI().getPath().substring(1);
+            Path file = directory.resolve(name);
+
+            if (!name.matches("[A-Za-z0-9._-]+") || !Files.isRegularFile(file)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            String etag = ReplayTransport.etag(file);
+            exchange.getResponseHeaders().set("ETag", etag);
+
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = encoding != null && encoding.contains("gzip");
+
+            if (gzip)
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, gzip ? 0 : Files.size(file));
+            try (InputStream body = faults.throttle(Files.newInputStream(file));
+                 OutputStream out = gzip
+                         ? new GZIPOutputStream(exchange.getResponseBody())
+                         : exchange.getResponseBody()) {
+                byte[] chunk = new byte[8192];
+
+                for (int read; (read = body.read(chunk)) != -1; )
+                    out.write(chunk, 0, read);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+}
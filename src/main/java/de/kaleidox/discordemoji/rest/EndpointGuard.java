@@ -0,0 +1,209 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.Nullable;
+
+/*
+Applies a RequestPolicy to all requests of one endpoint: a token bucket whose rate adapts to 429 responses,
+retries with backoff and jitter, and a circuit breaker. Waiting never blocks a thread; delayed attempts are
+scheduled on a single daemon thread, which only hands them to the transport.
+Only transient failures are retried and count towards opening the circuit: network failures before a response
+arrived or while its body was read, and statuses that are retryable. A response that the handler rejects, such as a
+malformed body, fails at once.
+*/
+final class EndpointGuard {
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "DiscordEmoji-Retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Endpoint endpoint;
+    private final RequestPolicy policy;
+
+    private double rate;
+    private double tokens;
+    private long refilled = System.nanoTime();
+
+    private int failures = 0;
+    private long openUntil = 0;
+    private boolean open = false;
+    private boolean trialRunning = false;
+
+    EndpointGuard(Endpoint endpoint, RequestPolicy policy) {
+        this.endpoint = endpoint;
+        this.policy = policy;
+        this.rate = policy.rate;
+        this.tokens = policy.burst;
+    }
+
+    RequestPolicy policy() {
+        return policy;
+    }
+
+    synchronized boolean isOpen() {
+        return open && (trialRunning || System.nanoTime() - openUntil < 0);
+    }
+
+    <T> CompletableFuture<T> execute(Function<Attempt, CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        attempt(request, 1, result);
+
+        return result;
+    }
+
+    private <T> void attempt(Function<Attempt, CompletableFuture<T>> request, int attempt, CompletableFuture<T> result) {
+        if (result.isDone())
+            return;
+        if (!allow()) {
+            result.completeExceptionally(new CircuitOpenException(endpoint));
+            return;
+        }
+
+        long delay = reserve();
+
+        if (delay > 0)
+            scheduler.schedule(() -> send(request, attempt, result), delay, TimeUnit.NANOSECONDS);
+        else send(request, attempt, result);
+    }
+
+    private <T> void send(Function<Attempt, CompletableFuture<T>> request, int attempt, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            release();
+            return;
+        }
+
+        Attempt current = new Attempt();
+        CompletableFuture<T> call;
+
+        try {
+            call = request.apply(current);
+        } catch (Throwable t) {
+            call = new CompletableFuture<>();
+            call.completeExceptionally(t);
+        }
+
+        CompletableFuture<T> running = call;
+        result.whenComplete((value, throwable) -> {
+            if (result.isCancelled())
+                running.cancel(true);
+        });
+
+        call.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                completed(true);
+                result.complete(value);
+                return;
+            }
+            if (result.isDone()) {
+                release();
+                return;
+            }
+
+            IOException cause = ioCause(throwable);
+            HttpStatusException status = cause instanceof HttpStatusException ? (HttpStatusException) cause : null;
+            boolean retryable = cause != null && !(cause instanceof ResponseTooLargeException)
+                    && (status != null ? status.isRetryable() : !current.responded || current.bodyFailed);
+
+            if (status != null && status.getStatus() == 429)
+                throttle();
+            completed(!retryable);
+
+            if (!retryable || attempt >= policy.maxAttempts) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+
+            long delay = policy.backoff(attempt);
+
+            if (status != null)
+                delay = Math.max(delay, status.retryAfter);
+            scheduler.schedule(() -> attempt(request, attempt + 1, result), delay, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    /*
+    Circuit breaker: a closed circuit allows every attempt. An open circuit allows nothing until its open duration
+    has passed; then it allows exactly one trial attempt, whose outcome decides whether it closes again.
+    */
+    private synchronized boolean allow() {
+        if (!open)
+            return true;
+        if (trialRunning || System.nanoTime() - openUntil < 0)
+            return false;
+
+        trialRunning = true;
+        return true;
+    }
+
+    private synchronized void completed(boolean success) {
+        trialRunning = false;
+
+        if (success) {
+            failures = 0;
+            open = false;
+            rate = Math.min(policy.rate, rate + policy.rate / 10);
+        } else if (++failures >= policy.failureThreshold || open) {
+            open = true;
+            openUntil = System.nanoTime() + policy.openDuration;
+        }
+    }
+
+    private synchronized void release() {
+        trialRunning = false;
+    }
+
+    /*
+    Token bucket: takes one token and returns how long to wait until it is actually available, in nanoseconds.
+    Tokens may be taken in advance, so waiting requests are sent in the order they reserved their token.
+    */
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+
+        tokens = Math.min(policy.burst, tokens + (now - refilled) * rate / 1e9);
+        refilled = now;
+        tokens -= 1;
+
+        return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+    }
+
+    private synchronized void throttle() {
+        rate = Math.max(policy.rate / 16, rate / 2);
+    }
+
+    private static @Nullable IOException ioCause(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause())
+            if (cause instanceof IOException)
+                return (IOException) cause;
+        return null;
+    }
+
+    /*
+    The state of one attempt, as reported by the response handler of the request.
+    */
+    static final class Attempt {
+        private volatile boolean responded = false;
+        private volatile boolean bodyFailed = false;
+
+        /*
+        A response arrived; failures from now on are only transient if reading the body failed.
+        */
+        void responded() {
+            responded = true;
+        }
+
+        /*
+        Reading the body of the response failed.
+        */
+        void bodyFailed() {
+            bodyFailed = true;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The configuration of the HTTP client of an {@link OkHttpTransport}.
+ * <p>
+ * Idle connections are kept in a pool for reuse, so that following requests to the same host skip the TCP and TLS
+ * handshakes. HTTP/2 is negotiated with hosts that support it, which multiplexes all requests to a host over a
+ * single connection; otherwise, HTTP/1.1 is used.
+ * <p>
+ * With compression, responses are requested gzip-compressed and decompressed transparently while they are being
+ * read; without it, responses are requested uncompressed. Responses larger than the maximum response size fail
+ * with a {@link ResponseTooLargeException} as soon as the limit is exceeded, and are not retried.
+ * <p>
+ * Instances are immutable; every {@code with*} method returns a new instance.
+ *
+ * @see RestRequestHelper#setHttpClientConfig(HttpClientConfig)
+ * @see HttpClientStats
+ */
+public final class HttpClientConfig {
+    /**
+     * The default configuration: a pool of 5 idle connections kept alive for 5 minutes, HTTP/2 and compression
+     * enabled, connect and read timeouts of 10 seconds, no timeout for whole requests, and no maximum response size.
+     */
+    public static final HttpClientConfig DEFAULT = new HttpClientConfig(5, TimeUnit.MINUTES.toNanos(5), true, true,
+            TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(10), 0, 0);
+
+    final int maxIdleConnections;
+    final long keepAlive;
+    final boolean http2;
+    final boolean compression;
+    final long connectTimeout;
+    final long readTimeout;
+    final long callTimeout;
+    final long maxResponseSize;
+
+    private HttpClientConfig(
+            int maxIdleConnections,
+            long keepAlive,
+            boolean http2,
+            boolean compression,
+            long connectTimeout,
+            long readTimeout,
+            long callTimeout,
+            long maxResponseSize
+    ) {
+        this.maxIdleConnections = maxIdleConnections;
+        this.keepAlive = keepAlive;
+        this.http2 = http2;
+        this.compression = compression;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.callTimeout = callTimeout;
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Configures the connection pool.
+     *
+     * @param maxIdleConnections The maximum amount of idle connections to keep. Must not be negative.
+     * @param keepAlive          How long an idle connection is kept. Must be positive.
+     * @param unit               The time unit of the keep-alive.
+     *
+     * @return A new instance with the given connection pool.
+     */
+    public HttpClientConfig withConnectionPool(int maxIdleConnections, long keepAlive, TimeUnit unit) {
+        if (maxIdleConnections < 0 || keepAlive <= 0)
+            throw new IllegalArgumentException("Invalid connection pool: " + maxIdleConnections + ", " + keepAlive);
+
+        return new HttpClientConfig(maxIdleConnections, unit.toNanos(keepAlive), http2, compression, connectTimeout,
+                readTimeout, callTimeout, maxResponseSize);
+    }
+
+    /**
+     * Configures whether HTTP/2 may be negotiated, or only HTTP/1.1 is used.
+     *
+     * @param http2 Whether to prefer HTTP/2.
+     *
+     * @return A new instance with the given protocol preference.
+     */
+    public HttpClientConfig withHttp2(boolean http2) {
+        return new HttpClientConfig(maxIdleConnections, keepAlive, http2, compression, connectTimeout, readTimeout,
+                callTimeout, maxResponseSize);
+    }
+
+    /**
+     * Configures whether responses are requested gzip-compressed.
+     *
+     * @param compression Whether to request compressed responses.
+     *
+     * @return A new instance with the given compression.
+     */
+    public HttpClientConfig withCompression(boolean compression) {
+        return new HttpClientConfig(maxIdleConnections, keepAlive, http2, compression, connectTimeout, readTimeout,
+                callTimeout, maxResponseSize);
+    }
+
+    /**
+     * Configures the timeouts. A timeout of {@code 0} disables the timeout.
+     *
+     * @param connect The timeout for establishing a connection.
+     * @param read    The timeout for any single read from a connection.
+     * @param call    The timeout for a whole request, including reading the response body.
+     * @param unit    The time unit of the timeouts.
+     *
+     * @return A new instance with the given timeouts.
+     */
+    public HttpClientConfig withTimeouts(long connect, long read, long call, TimeUnit unit) {
+        if (connect < 0 || read < 0 || call < 0)
+            throw new IllegalArgumentException("Timeouts must not be negative");
+
+        return new HttpClientConfig(maxIdleConnections, keepAlive, http2, compression, unit.toNanos(connect),
+                unit.toNanos(read), unit.toNanos(call), maxResponseSize);
+    }
+
+    /**
+     * Configures the maximum size of a response body after decompression.
+     * A size of {@code 0} disables the limit, which is the default.
+     *
+     * @param bytes The maximum response size in bytes. Must not be negative.
+     *
+     * @return A new instance with the given maximum response size.
+     */
+    public HttpClientConfig withMaxResponseSize(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("bytes < 0: " + bytes);
+
+        return new HttpClientConfig(maxIdleConnections, keepAlive, http2, compression, connectTimeout, readTimeout,
+                callTimeout, bytes);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HttpClientConfig(pool:%d/%ds,http2:%b,compression:%b,timeouts:%d/%d/%dms,max:%d)",
+                maxIdleConnections, TimeUnit.NANOSECONDS.toSeconds(keepAlive), http2, compression,
+                TimeUnit.NANOSECONDS.toMillis(connectTimeout), TimeUnit.NANOSECONDS.toMillis(readTimeout),
+                TimeUnit.NANOSECONDS.toMillis(callTimeout), maxResponseSize);
+    }
+}
@@ -0,0 +1,104 @@
+package de.kaleidox.discordemoji.rest;
+
+/**
+ * A snapshot of the counters of an {@link OkHttpTransport} since it was created.
+ *
+ * @see RestRequestHelper#getHttpClientStats()
+ */
+public final class HttpClientStats {
+    private final long requests;
+    private final long connectionsOpened;
+    private final long connectionsAcquired;
+    private final long http2Requests;
+    private final long compressedResponses;
+    private final long bytesReceived;
+    private final long bytesDecoded;
+
+    HttpClientStats(
+            long requests,
+            long connectionsOpened,
+            long connectionsAcquired,
+            long http2Requests,
+            long compressedResponses,
+            long bytesReceived,
+            long bytesDecoded
+    ) {
+        this.requests = requests;
+        this.connectionsOpened = connectionsOpened;
+        this.connectionsAcquired = connectionsAcquired;
+        this.http2Requests = http2Requests;
+        this.compressedResponses = compressedResponses;
+        this.bytesReceived = bytesReceived;
+        this.bytesDecoded = bytesDecoded;
+    }
+
+    /**
+     * Gets the amount of requests that were sent.
+     *
+     * @return The amount of requests.
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Gets the amount of connections that were newly established.
+     *
+     * @return The amount of new connections.
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    /**
+     * Gets the amount of times a pooled connection was reused for a request instead of establishing a new one.
+     *
+     * @return The amount of reused connections.
+     */
+    public long getConnectionsReused() {
+        return Math.max(0, connectionsAcquired - connectionsOpened);
+    }
+
+    /**
+     * Gets the amount of requests that were sent over HTTP/2.
+     *
+     * @return The amount of HTTP/2 requests.
+     */
+    public long getHttp2Requests() {
+        return http2Requests;
+    }
+
+    /**
+     * Gets the amount of responses that were transferred compressed.
+     *
+     * @return The amount of compressed responses.
+     */
+    public long getCompressedResponses() {
+        return compressedResponses;
+    }
+
+    /**
+     * Gets the amount of response body bytes that were received on the wire, before decompression.
+     *
+     * @return The amount of received bytes.
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * Gets the amount of response body bytes that were read after decompression.
+     *
+     * @return The amount of decoded bytes.
+     */
+    public long getBytesDecoded() {
+        return bytesDecoded;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HttpClientStats(requests:%d,opened:%d,reused:%d,http2:%d,compressed:%d,bytes:%d/%d)",
+                requests, connectionsOpened, getConnectionsReused(), http2Requests, compressedResponses,
+                bytesReceived, bytesDecoded);
+    }
+}
@@ -0,0 +1,49 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an {@link Endpoint} answers with an HTTP status code that does not indicate success.
+ * The response body is never handed to any reader.
+ */
+public final class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final Endpoint endpoint;
+    private final int status;
+
+    final long retryAfter;
+
+    HttpStatusException(Endpoint endpoint, int status, long retryAfter) {
+        super("Endpoint " + endpoint + " responded with status " + status);
+
+        this.endpoint = endpoint;
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets the endpoint that was requested.
+     *
+     * @return The endpoint.
+     */
+    public Endpoint getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Gets the HTTP status code of the response.
+     *
+     * @return The status code.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /*
+    Whether the request may succeed when it is retried.
+    */
+    boolean isRetryable() {
+        return status == 408 || status == 429 || status >= 500;
+    }
+}
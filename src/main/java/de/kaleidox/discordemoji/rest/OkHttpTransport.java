@@ -0,0 +1,325 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Connection;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.EventListener;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The default {@link Transport}, which executes requests with OkHttp.
+ * <p>
+ * Requests are executed asynchronously on a dedicated pool of daemon threads, and response bodies are read on the
+ * thread that received the response. No thread of the {@linkplain java.util.concurrent.ForkJoinPool#commonPool()
+ * common pool} is ever blocked by network I/O.
+ * <p>
+ * The HTTP client is configured by a {@link HttpClientConfig}, and counts connections and transferred bytes in its
+ * {@link HttpClientStats}.
+ * <p>
+ * {@linkplain #close() Close} the transport once it is no longer used, to release its threads and pooled
+ * connections.
+ */
+public final class OkHttpTransport implements Transport, Closeable {
+    /**
+     * The default amount of requests that may be executed at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    private final Dispatcher dispatcher;
+    private final StatsListener stats = new StatsListener();
+
+    private volatile OkHttpClient client;
+    private volatile HttpClientConfig config;
+
+    /**
+     * Constructor with the {@linkplain HttpClientConfig#DEFAULT default configuration}.
+     */
+    public OkHttpTransport() {
+        this(HttpClientConfig.DEFAULT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param config The configuration of the HTTP client.
+     */
+    public OkHttpTransport(HttpClientConfig config) {
+        dispatcher = new Dispatcher(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "DiscordEmoji-REST-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        dispatcher.setMaxRequests(DEFAULT_MAX_CONCURRENT_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(DEFAULT_MAX_CONCURRENT_REQUESTS);
+
+        this.client = build(new OkHttpClient.Builder().dispatcher(dispatcher).eventListener(stats), null, config);
+        this.config = config;
+    }
+
+    /**
+     * Sets the configuration of the HTTP client for all following requests.
+     * Pooled connections are kept, unless the connection pool is configured differently.
+     *
+     * @param config The configuration.
+     */
+    public synchronized void setConfig(HttpClientConfig config) {
+        OkHttpClient previous = client;
+
+        client = build(previous.newBuilder(), this.config, config);
+        this.config = config;
+        if (client.connectionPool() != previous.connectionPool())
+            previous.connectionPool().evictAll();
+    }
+
+    /**
+     * Gets the configuration of the HTTP client.
+     *
+     * @return The current configuration.
+     */
+    public HttpClientConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets a snapshot of the counters of the HTTP client.
+     *
+     * @return The current counters.
+     */
+    public HttpClientStats getStats() {
+        return new HttpClientStats(stats.requests.sum(), stats.connectionsOpened.sum(),
+                stats.connectionsAcquired.sum(), stats.http2Requests.sum(), stats.compressedResponses.sum(),
+                stats.bytesReceived.sum(), stats.bytesDecoded.sum());
+    }
+
+    /**
+     * Sets the amount of requests that may be executed at the same time.
+     * Any further request is queued until a running request has completed.
+     *
+     * @param maxConcurrentRequests The amount of concurrent requests. Must be positive.
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+    }
+
+    /**
+     * Sets the timeout for a whole request, including reading the response body.
+     * A timeout of {@code 0} disables the timeout, which is the default.
+     *
+     * @param timeout The timeout.
+     * @param unit    The time unit of the timeout.
+     *
+     * @see HttpClientConfig#withTimeouts(long, long, long, TimeUnit)
+     */
+    public synchronized void setRequestTimeout(long timeout, TimeUnit unit) {
+        setConfig(config.withTimeouts(config.connectTimeout, config.readTimeout, unit.toNanos(timeout),
+                TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(URL url, Map<String, String> headers, ResponseHandler<T> handler) {
+        Request.Builder request = new Request.Builder()
+                .method("GET", null)
+                .url(url);
+
+        HttpClientConfig config = this.config;
+
+        if (!config.compression)
+            request.header("Accept-Encoding", "identity");
+        headers.forEach(request::header);
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = client.newCall(request.build());
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                future.completeExceptionally(new RuntimeException("RequestException", e));
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull okhttp3.Response response) {
+                try (okhttp3.Response closing = response) {
+                    future.complete(handler.handle(convert(url, closing, config.maxResponseSize)));
+                } catch (IOException e) {
+                    future.completeExceptionally(new RuntimeException("RequestException", e));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled())
+                call.cancel();
+        });
+
+        return future;
+    }
+
+    /**
+     * Releases the threads and pooled connections of this transport.
+     * Running requests are completed, but no further request must be executed.
+     */
+    @Override
+    public void close() {
+        dispatcher.executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /*
+    Applies the configuration to the builder. The connection pool is replaced only if its configuration changed.
+    */
+    private static OkHttpClient build(
+            OkHttpClient.Builder builder,
+            @Nullable HttpClientConfig previous,
+            HttpClientConfig config
+    ) {
+        if (previous == null
+                || previous.maxIdleConnections != config.maxIdleConnections
+                || previous.keepAlive != config.keepAlive) {
+            builder.connectionPool(new ConnectionPool(config.maxIdleConnections, config.keepAlive,
+                    TimeUnit.NANOSECONDS));
+        }
+
+        return builder
+                .protocols(config.http2
+                        ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                        : Collections.singletonList(Protocol.HTTP_1_1))
+                .connectTimeout(config.connectTimeout, TimeUnit.NANOSECONDS)
+                .readTimeout(config.readTimeout, TimeUnit.NANOSECONDS)
+                .callTimeout(config.callTimeout, TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    private Response convert(URL url, okhttp3.Response response, long maxResponseSize) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        ResponseBody body = response.body();
+        InputStream stream = body == null ? new ByteArrayInputStream(new byte[0]) : body.byteStream();
+
+        if (maxResponseSize > 0 && body != null && body.contentLength() > maxResponseSize)
+            throw new ResponseTooLargeException(url, maxResponseSize);
+        for (String name : response.headers().names())
+            headers.put(name, response.header(name));
+
+        return new Response(response.code(), headers, new LimitedInputStream(stream, url, maxResponseSize));
+    }
+
+    /*
+    Counts the decoded bytes of a response body, and fails once they exceed the maximum response size.
+    */
+    private final class LimitedInputStream extends FilterInputStream {
+        private final URL url;
+        private final long limit;
+        private long count = 0;
+
+        private LimitedInputStream(InputStream in, URL url, long limit) {
+            super(in);
+
+            this.url = url;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+
+            if (read != -1)
+                counted(1);
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+
+            if (read > 0)
+                counted(read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+
+            counted(skipped);
+            return skipped;
+        }
+
+        private void counted(long bytes) throws ResponseTooLargeException {
+            count += bytes;
+            stats.bytesDecoded.add(bytes);
+            if (limit > 0 && count > limit)
+                throw new ResponseTooLargeException(url, limit);
+        }
+    }
+
+    private static final class StatsListener extends EventListener {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder connectionsOpened = new LongAdder();
+        private final LongAdder connectionsAcquired = new LongAdder();
+        private final LongAdder http2Requests = new LongAdder();
+        private final LongAdder compressedResponses = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final LongAdder bytesDecoded = new LongAdder();
+
+        @Override
+        public void callStart(@NotNull Call call) {
+            requests.increment();
+        }
+
+        @Override
+        public void connectEnd(
+                @NotNull Call call,
+                @NotNull InetSocketAddress address,
+                @NotNull Proxy proxy,
+                @Nullable Protocol protocol
+        ) {
+            connectionsOpened.increment();
+        }
+
+        @Override
+        public void connectionAcquired(@NotNull Call call, @NotNull Connection connection) {
+            connectionsAcquired.increment();
+            if (connection.protocol() == Protocol.HTTP_2)
+                http2Requests.increment();
+        }
+
+        @Override
+        public void responseHeadersEnd(@NotNull Call call, @NotNull okhttp3.Response response) {
+            if (response.header("Content-Encoding") != null)
+                compressedResponses.increment();
+        }
+
+        @Override
+        public void responseBodyEnd(@NotNull Call call, long byteCount) {
+            bytesReceived.add(byteCount);
+        }
+    }
+}
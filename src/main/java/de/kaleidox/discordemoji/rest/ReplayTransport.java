@@ -0,0 +1,204 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A {@link Transport} that serves recorded responses from a directory, without any network access.
+ * <p>
+ * Every URL is mapped to one file in the directory; see {@link #getFileName(URL)}. Responses are recorded by
+ * {@linkplain #recording(Transport, Path) wrapping another transport}, or can be placed there manually.
+ * A missing file is answered with {@code 404 Not Found}.
+ * <p>
+ * Every response carries an {@code ETag} derived from the size and modification time of its file, so that
+ * conditional requests are answered with {@code 304 Not Modified} until the file changes.
+ * {@linkplain #setFaults(TransportFaults) Faults} such as latency, limited bandwidth and errors can be injected.
+ * <p>
+ * Responses are served from a pool of threads that is owned by the transport; {@linkplain #close() close} the
+ * transport once it is no longer used.
+ */
+public final class ReplayTransport implements Transport, Closeable {
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    private final Path directory;
+    private final ScheduledExecutorService executor;
+
+    private volatile TransportFaults faults = TransportFaults.NONE;
+
+    /**
+     * Constructor.
+     *
+     * @param directory The directory of the recorded responses.
+     */
+    public ReplayTransport(Path directory) {
+        this.directory = directory;
+        this.executor = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "DiscordEmoji-Replay-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Sets the faults to inject into all following responses.
+     *
+     * @param faults The faults.
+     */
+    public void setFaults(TransportFaults faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(URL url, Map<String, String> headers, ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        TransportFaults faults = this.faults;
+        ScheduledFuture<?> scheduled = executor.schedule(() -> {
+            try {
+                Response response = respond(url, headers, faults);
+
+                try {
+                    future.complete(handler.handle(response));
+                } finally {
+                    response.getBody().close();
+                }
+            } catch (IOException e) {
+                future.completeExceptionally(new RuntimeException("RequestException", e));
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }, faults.nextLatency(), TimeUnit.NANOSECONDS);
+
+        future.whenComplete((result, throwable) -> {
+            if (future.isCancelled())
+                scheduled.cancel(false);
+        });
+
+        return future;
+    }
+
+    /**
+     * Stops the threads of this transport. Pending requests are not answered anymore.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Maps a URL to the name of the file its response is recorded in.
+     * All characters of host, path and query that are not letters, digits, dots or dashes are replaced by
+     * underscores; the URL of {@link Endpoint#LIST_ALL_PACKS}, for example, is recorded in {@code emoji.gg_api_packs}.
+     *
+     * @param url The URL.
+     *
+     * @return The file name.
+     */
+    public static String getFileName(URL url) {
+        return (url.getHost() + url.getFile()).replaceAll("[^A-Za-z0-9.-]", "_");
+    }
+
+    /**
+     * Wraps a transport so that every successful response is recorded into the given directory, to be
+     * {@linkplain ReplayTransport replayed} later.
+     * <p>
+     * Recorded response bodies are buffered completely before they are handed to the handler.
+     *
+     * @param transport The transport to record the responses of.
+     * @param directory The directory to record the responses into.
+     *
+     * @return The recording transport.
+     */
+    public static Transport recording(Transport transport, Path directory) {
+        return new Transport() {
+            @Override
+            public <T> CompletableFuture<T> get(URL url, Map<String, String> headers, ResponseHandler<T> handler) {
+                return transport.get(url, headers, response -> {
+                    if (response.getCode() != 200)
+                        return handler.handle(response);
+
+                    byte[] body = readAll(response.getBody());
+                    Path file = directory.resolve(getFileName(url));
+                    Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+
+                    try {
+                        Files.write(temp, body);
+                        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(temp);
+                    }
+
+                    return handler.handle(new Response(200, response.getHeaders(), new ByteArrayInputStream(body)));
+                });
+            }
+        };
+    }
+
+    private Response respond(URL url, Map<String, String> headers, TransportFaults faults) throws IOException {
+        if (faults.nextError()) {
+            if (faults.errorStatus() == 0)
+                throw new IOException("Injected connection failure");
+            return new Response(faults.errorStatus(), Collections.emptyMap(), new ByteArrayInputStream(new byte[0]));
+        }
+
+        Path file = directory.resolve(getFileName(url));
+        String etag;
+
+        try {
+            etag = etag(file);
+        } catch (NoSuchFileException e) {
+            return new Response(404, Collections.emptyMap(), new ByteArrayInputStream(new byte[0]));
+        }
+
+        Map<String, String> responseHeaders = new HashMap<>();
+        responseHeaders.put("ETag", etag);
+
+        if (etag.equals(header(headers, "If-None-Match")))
+            return new Response(304, responseHeaders, new ByteArrayInputStream(new byte[0]));
+
+        InputStream body = Files.newInputStream(file);
+
+        return new Response(200, responseHeaders, faults.throttle(body));
+    }
+
+    static String etag(Path file) throws IOException {
+        return String.format("\"%x-%x\"", Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+
+    static @Nullable String header(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet())
+            if (header.getKey().equalsIgnoreCase(name))
+                return header.getValue();
+        return null;
+    }
+
+    static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+
+        for (int read; (read = stream.read(chunk)) != -1; )
+            buffer.write(chunk, 0, read);
+
+        return buffer.toByteArray();
+    }
+}
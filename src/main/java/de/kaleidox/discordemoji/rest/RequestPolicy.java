@@ -0,0 +1,131 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How requests to one {@link Endpoint} are rate limited, retried, and cut off while the endpoint is unhealthy.
+ * <p>
+ * Requests are limited by a token bucket: up to {@code burst} requests may be sent at once, after which requests are
+ * delayed to the configured rate. If the server answers {@code 429 Too Many Requests}, the rate is halved, and it
+ * recovers gradually with every successful request.
+ * <p>
+ * Requests that fail because of the network, or with a status code of {@code 429} or {@code 5xx}, are retried with
+ * an exponential backoff and full jitter, so that many clients do not retry at the same time; a
+ * {@code Retry-After} header of the server is respected. Any other status code is not retried.
+ * <p>
+ * After a number of consecutive failed attempts, the circuit breaker of the endpoint opens: all requests fail
+ * immediately with a {@link CircuitOpenException} for the configured duration, after which a single trial request
+ * is let through. If it succeeds, the circuit closes again; otherwise it stays open for another duration.
+ * <p>
+ * Instances are immutable; every {@code with*} method returns a new instance.
+ *
+ * @see RestRequestHelper#setRequestPolicy(Endpoint, RequestPolicy)
+ */
+public final class RequestPolicy {
+    /**
+     * The default policy: 5 requests per second with a burst of 10, 3 attempts with a backoff starting at 500
+     * milliseconds and capped at 30 seconds, and a circuit breaker that opens for 30 seconds after 5 consecutive
+     * failed attempts.
+     */
+    public static final RequestPolicy DEFAULT = new RequestPolicy(5, 10, 3, TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(30), 5, TimeUnit.SECONDS.toNanos(30));
+
+    final double rate;
+    final int burst;
+    final int maxAttempts;
+    final long baseDelay;
+    final long maxDelay;
+    final int failureThreshold;
+    final long openDuration;
+
+    private RequestPolicy(
+            double rate,
+            int burst,
+            int maxAttempts,
+            long baseDelay,
+            long maxDelay,
+            int failureThreshold,
+            long openDuration
+    ) {
+        this.rate = rate;
+        this.burst = burst;
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Limits the rate of requests.
+     *
+     * @param requestsPerSecond The maximum sustained amount of requests per second. Must be positive.
+     * @param burst             The amount of requests that may be sent at once. Must be positive.
+     *
+     * @return A new instance with the given rate limit.
+     */
+    public RequestPolicy withRateLimit(double requestsPerSecond, int burst) {
+        if (!(requestsPerSecond > 0) || burst < 1)
+            throw new IllegalArgumentException("Rate and burst must be positive");
+
+        return new RequestPolicy(requestsPerSecond, burst, maxAttempts, baseDelay, maxDelay, failureThreshold,
+                openDuration);
+    }
+
+    /**
+     * Configures retries. The n-th retry is delayed by a random time between {@code 0} and
+     * {@code min(maxDelay, baseDelay * 2^(n-1))}.
+     *
+     * @param maxAttempts The maximum amount of attempts per request, including the first one. Must be positive.
+     * @param baseDelay   The maximum delay of the first retry.
+     * @param maxDelay    The upper limit of the delay of any retry.
+     * @param unit        The time unit of the delays.
+     *
+     * @return A new instance with the given retries.
+     */
+    public RequestPolicy withRetries(int maxAttempts, long baseDelay, long maxDelay, TimeUnit unit) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("maxAttempts < 1: " + maxAttempts);
+
+        return new RequestPolicy(rate, burst, maxAttempts, unit.toNanos(baseDelay), unit.toNanos(maxDelay),
+                failureThreshold, openDuration);
+    }
+
+    /**
+     * Configures the circuit breaker.
+     *
+     * @param failureThreshold The amount of consecutive failed attempts that open the circuit. Must be positive.
+     * @param openDuration     How long the circuit stays open before a trial request is let through.
+     * @param unit             The time unit of the duration.
+     *
+     * @return A new instance with the given circuit breaker.
+     */
+    public RequestPolicy withCircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        if (failureThreshold < 1)
+            throw new IllegalArgumentException("failureThreshold < 1: " + failureThreshold);
+
+        return new RequestPolicy(rate, burst, maxAttempts, baseDelay, maxDelay, failureThreshold,
+                unit.toNanos(openDuration));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RequestPolicy(rate:%.2f/s,burst:%d,attempts:%d,backoff:%d-%dms,breaker:%d/%dms)",
+                rate, burst, maxAttempts, TimeUnit.NANOSECONDS.toMillis(baseDelay),
+                TimeUnit.NANOSECONDS.toMillis(maxDelay), failureThreshold,
+                TimeUnit.NANOSECONDS.toMillis(openDuration));
+    }
+
+    /*
+    The delay before the given retry, in nanoseconds; full jitter over the exponentially growing window.
+    */
+    long backoff(int retry) {
+        int shift = retry - 1;
+        long window = shift < Long.numberOfLeadingZeros(baseDelay) - 1
+                ? Math.min(maxDelay, baseDelay << shift)
+                : maxDelay;
+
+        return window > 0 ? ThreadLocalRandom.current().nextLong(window + 1) : 0;
+    }
+}
@@ -0,0 +1,40 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Thrown while reading a response body that exceeds the maximum response size of the {@link HttpClientConfig}.
+ * Requests failing with this exception are not retried.
+ */
+public final class ResponseTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final URL url;
+    private final long maxResponseSize;
+
+    ResponseTooLargeException(URL url, long maxResponseSize) {
+        super("Response of " + url + " exceeds " + maxResponseSize + " bytes");
+
+        this.url = url;
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Gets the URL that was requested.
+     *
+     * @return The URL.
+     */
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * Gets the maximum response size that was exceeded.
+     *
+     * @return The maximum response size in bytes.
+     */
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+}
@@ -1,23 +1,153 @@
 package de.kaleidox.discordemoji.rest;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import okhttp3.Call;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
+import de.kaleidox.discordemoji.metrics.Metrics;
+import de.kaleidox.discordemoji.metrics.MetricsListener;
+
+import okio.Okio;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Helper class for REST-Requests.
+ * <p>
+ * Requests are executed by the current {@link Transport}, which is an {@link OkHttpTransport} by default.
+ * No thread of the {@linkplain java.util.concurrent.ForkJoinPool#commonPool() common pool} is ever blocked by
+ * network I/O.
+ * <p>
+ * Requests are rate limited, retried and cut off by a circuit breaker according to the {@link RequestPolicy} of
+ * their endpoint. Responses whose status code does not indicate success are never handed to a reader; the request
+ * fails with an {@link HttpStatusException} instead.
  */
 public final class RestRequestHelper {
-    private static final OkHttpClient client;
+    /**
+     * The default amount of requests that may be executed at the same time.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = OkHttpTransport.DEFAULT_MAX_CONCURRENT_REQUESTS;
+
+    private static final OkHttpTransport defaultTransport = new OkHttpTransport();
+    private static final Map<Endpoint, Validators> validatorMap = new ConcurrentHashMap<>();
+    private static final Map<Endpoint, EndpointGuard> guards = new ConcurrentHashMap<>();
+
+    private static volatile Transport transport = defaultTransport;
+
+    private RestRequestHelper() {
+        // nope
+    }
+
+    /**
+     * Sets the transport to execute all following requests with.
+     * Setting the transport to {@code null} restores the default {@link OkHttpTransport}.
+     *
+     * @param transport The transport, or null.
+     */
+    public static void setTransport(@Nullable Transport transport) {
+        RestRequestHelper.transport = transport == null ? defaultTransport : transport;
+    }
+
+    /**
+     * Gets the transport that requests are executed with.
+     *
+     * @return The current transport.
+     */
+    public static Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Sets the amount of requests that the default {@link OkHttpTransport} may execute at the same time.
+     * Any further request is queued until a running request has completed.
+     *
+     * @param maxConcurrentRequests The amount of concurrent requests. Must be positive.
+     */
+    public static void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        defaultTransport.setMaxConcurrentRequests(maxConcurrentRequests);
+    }
+
+    /**
+     * Sets the timeout of the default {@link OkHttpTransport} for a whole request, including reading the response
+     * body. A timeout of {@code 0} disables the timeout, which is the default.
+     *
+     * @param timeout The timeout.
+     * @param unit    The time unit of the timeout.
+     */
+    public static void setRequestTimeout(long timeout, TimeUnit unit) {
+        defaultTransport.setRequestTimeout(timeout, unit);
+    }
+
+    /**
+     * Sets the configuration of the HTTP client of the default {@link OkHttpTransport}.
+     *
+     * @param config The configuration.
+     */
+    public static void setHttpClientConfig(HttpClientConfig config) {
+        defaultTransport.setConfig(config);
+    }
+
+    /**
+     * Gets the configuration of the HTTP client of the default {@link OkHttpTransport}.
+     *
+     * @return The current configuration; {@link HttpClientConfig#DEFAULT} unless another configuration was set.
+     */
+    public static HttpClientConfig getHttpClientConfig() {
+        return defaultTransport.getConfig();
+    }
+
+    /**
+     * Gets a snapshot of the connection and transfer counters of the default {@link OkHttpTransport}.
+     *
+     * @return The current counters.
+     */
+    public static HttpClientStats getHttpClientStats() {
+        return defaultTransport.getStats();
+    }
+
+    /**
+     * Sets the policy for all following requests to the provided {@link Endpoint}.
+     * This resets the rate limit and circuit breaker of the endpoint.
+     *
+     * @param endpoint The endpoint.
+     * @param policy   The policy.
+     */
+    public static void setRequestPolicy(Endpoint endpoint, RequestPolicy policy) {
+        guards.put(endpoint, new EndpointGuard(endpoint, policy));
+    }
 
-    static {
-        client = new OkHttpClient.Builder()
-                .build();
+    /**
+     * Gets the policy for requests to the provided {@link Endpoint}.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return The policy; {@link RequestPolicy#DEFAULT} unless another policy was set.
+     */
+    public static RequestPolicy getRequestPolicy(Endpoint endpoint) {
+        return guard(endpoint).policy();
+    }
+
+    /**
+     * Returns whether the circuit breaker of the provided {@link Endpoint} is currently open, so that requests to
+     * it fail immediately with a {@link CircuitOpenException}.
+     *
+     * @param endpoint The endpoint.
+     *
+     * @return Whether the circuit is open.
+     */
+    public static boolean isCircuitOpen(Endpoint endpoint) {
+        return guard(endpoint).isOpen();
     }
 
     /**
@@ -25,26 +155,292 @@ public final class RestRequestHelper {
      *
      * @param endpoint The endpoint to {@code GET} from.
      *
-     * @return A future completing with the {@linkplain ResponseBody#string() response body}.
+     * @return A future completing with the response body as a string.
      */
     public static CompletableFuture<String> get(Endpoint endpoint) {
-        return CompletableFuture.supplyAsync(() -> {
+        return get(endpoint, body -> Okio.buffer(Okio.source(body)).readUtf8());
+    }
+
+    /**
+     * Invokes a {@code GET}-Request on the provided {@link Endpoint} and hands the response byte stream to the given
+     * reader.
+     * <p>
+     * The body is never buffered as a whole; the reader consumes it while it is being received.
+     * The response is closed once the reader returns.
+     *
+     * @param endpoint The endpoint to {@code GET} from.
+     * @param reader   The reader to consume the response body with.
+     * @param <T>      Type-variable for the result of the reader.
+     *
+     * @return A future completing with the result of the reader.
+     */
+    public static <T> CompletableFuture<T> get(Endpoint endpoint, BodyReader<T> reader) {
+        return execute(endpoint, Collections.emptyMap(), response -> reader.read(response.getBody()));
+    }
+
+    /**
+     * Invokes a conditional {@code GET}-Request on the provided {@link Endpoint}.
+     * <p>
+     * The validators of the last successfully read response of the endpoint are sent along with the request.
+     * If the server responds with {@code 304 Not Modified}, the reader is never invoked and the returned future
+     * completes with an empty Optional.
+     * <p>
+     * If the server does not send any validators ({@code ETag} or {@code Last-Modified}), the response body is hashed
+     * while the reader reads it, and the hash is compared against that of the last successfully read body afterwards;
+     * if they are equal, the result of the reader is discarded and the returned future completes with an empty
+     * Optional as well. Readers should therefore defer side effects, such as publishing what they read, until their
+     * result is used.
+     * <p>
+     * The validators are only remembered once the reader returned without an exception.
+     *
+     * @param endpoint The endpoint to {@code GET} from.
+     * @param reader   The reader to consume the response body with.
+     * @param <T>      Type-variable for the result of the reader.
+     *
+     * @return A future completing with the result of the reader, or an empty Optional if the resource was not
+     * modified since the last request.
+     */
+    public static <T> CompletableFuture<Optional<T>> getIfModified(Endpoint endpoint, BodyReader<T> reader) {
+        Validators known = validatorMap.get(endpoint);
+        Map<String, String> headers = new HashMap<>();
+
+        if (known != null && known.etag != null)
+            headers.put("If-None-Match", known.etag);
+        if (known != null && known.lastModified != null)
+            headers.put("If-Modified-Since", known.lastModified);
+
+        return execute(endpoint, headers, response -> {
+            if (response.getCode() == 304)
+                return Optional.empty();
+
+            String etag = response.getHeader("ETag");
+            String lastModified = response.getHeader("Last-Modified");
+
+            if (etag != null || lastModified != null) {
+                T result = reader.read(response.getBody());
+
+                validatorMap.put(endpoint, new Validators(etag, lastModified, null));
+                return Optional.of(result);
+            }
+
+            MessageDigest digest = digest();
+            DigestInputStream body = new DigestInputStream(response.getBody(), digest);
+            T result = reader.read(body);
+
+            drain(body);
+
+            byte[] hash = digest.digest();
+
+            if (known != null && Arrays.equals(known.hash, hash))
+                return Optional.empty();
+
+            validatorMap.put(endpoint, new Validators(null, null, hash));
+            return Optional.of(result);
+        });
+    }
+
+    /**
+     * Forgets the validators of the last response of the provided {@link Endpoint}, so that the next
+     * {@linkplain #getIfModified(Endpoint, BodyReader) conditional request} is guaranteed to read the response.
+     *
+     * @param endpoint The endpoint to forget the validators of.
+     */
+    public static void invalidate(Endpoint endpoint) {
+        validatorMap.remove(endpoint);
+    }
+
+    /*
+    Executes the request under the policy of the endpoint. Only responses with a successful status code, or 304,
+    are handed to the handler. Failures of reading the body are reported to the attempt, so that they are told apart
+    from the handler rejecting the response.
+    */
+    private static <T> CompletableFuture<T> execute(
+            Endpoint endpoint,
+            Map<String, String> headers,
+            Transport.ResponseHandler<T> handler
+    ) {
+        return guard(endpoint).execute(attempt -> send(endpoint, headers, response -> {
+            int status = response.getCode();
+
+            attempt.responded();
+            if (status != 304 && (status < 200 || status >= 300))
+                throw new HttpStatusException(endpoint, status, retryAfter(response.getHeader("Retry-After")));
+            return handler.handle(new Transport.Response(status, response.getHeaders(),
+                    new ReportingInputStream(response.getBody(), attempt)));
+        }));
+    }
+
+    /*
+    Sends one attempt of a request with the current transport, and reports response latency and body size to the
+    metrics listener if one is installed.
+    */
+    private static <T> CompletableFuture<T> send(
+            Endpoint endpoint,
+            Map<String, String> headers,
+            Transport.ResponseHandler<T> handler
+    ) {
+        MetricsListener metrics = Metrics.getListener();
+
+        if (metrics == MetricsListener.NONE)
+            return transport.get(endpoint.url, headers, handler);
+
+        long started = System.nanoTime();
+        AtomicBoolean responded = new AtomicBoolean(false);
+        CompletableFuture<T> future = transport.get(endpoint.url, headers, response -> {
+            responded.set(true);
+            metrics.onResponse(endpoint, response.getCode(), System.nanoTime() - started);
+
+            CountingInputStream body = new CountingInputStream(response.getBody());
+
             try {
-                Request getRequest = new Request.Builder()
-                        .method("GET", null)
-                        .url(endpoint.url)
-                        .build();
+                return handler.handle(new Transport.Response(response.getCode(), response.getHeaders(), body));
+            } finally {
+                metrics.onResponseBody(endpoint, body.count);
+            }
+        });
+
+        future.whenComplete((result, throwable) -> {
+            if (throwable != null && !responded.get())
+                metrics.onRequestFailure(endpoint, System.nanoTime() - started, throwable);
+        });
 
-                Call call = client.newCall(getRequest);
+        return future;
+    }
 
-                Response response = call.execute();
+    private static EndpointGuard guard(Endpoint endpoint) {
+        return guards.computeIfAbsent(endpoint, any -> new EndpointGuard(endpoint, RequestPolicy.DEFAULT));
+    }
 
-                ResponseBody body = response.body();
+    /*
+    The delay requested by a Retry-After header in seconds, in nanoseconds; HTTP dates are not supported.
+    */
+    private static long retryAfter(@Nullable String header) {
+        if (header == null || !header.trim().matches("\\d{1,9}"))
+            return 0;
+        return TimeUnit.SECONDS.toNanos(Long.parseLong(header.trim()));
+    }
 
-                return body == null ? "{}" : body.string();
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always supported", e);
+        }
+    }
+
+    /*
+    Reads whatever the reader left of the body, so that the hash covers all of it.
+    */
+    private static void drain(InputStream body) throws IOException {
+        byte[] buffer = new byte[8192];
+
+        while (body.read(buffer) != -1) {
+            // only hashed
+        }
+    }
+
+    private static final class Validators {
+        private final @Nullable String etag;
+        private final @Nullable String lastModified;
+        private final @Nullable byte[] hash;
+
+        private Validators(@Nullable String etag, @Nullable String lastModified, @Nullable byte[] hash) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+    }
+
+    private static final class ReportingInputStream extends FilterInputStream {
+        private final EndpointGuard.Attempt attempt;
+
+        private ReportingInputStream(InputStream in, EndpointGuard.Attempt attempt) {
+            super(in);
+
+            this.attempt = attempt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
             } catch (IOException e) {
-                throw new RuntimeException("RequestException", e);
+                attempt.bodyFailed();
+                throw e;
             }
-        });
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            try {
+                return super.read(bytes, offset, length);
+            } catch (IOException e) {
+                attempt.bodyFailed();
+                throw e;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            try {
+                return super.skip(n);
+            } catch (IOException e) {
+                attempt.bodyFailed();
+                throw e;
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count = 0;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+
+            if (read != -1)
+                count++;
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+
+            if (read > 0)
+                count += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Functional interface for consuming a response body stream.
+     *
+     * @param <T> Type-variable for the result.
+     */
+    @FunctionalInterface
+    public interface BodyReader<T> {
+        /**
+         * Reads the response body.
+         *
+         * @param body The response body stream.
+         *
+         * @return The result.
+         *
+         * @throws IOException If reading the body fails.
+         */
+        T read(InputStream body) throws IOException;
     }
 }
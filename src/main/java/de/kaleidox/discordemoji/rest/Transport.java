@@ -0,0 +1,120 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Executes the {@code GET}-Requests of {@link RestRequestHelper}.
+ * <p>
+ * The default transport is an {@link OkHttpTransport}. {@link ReplayTransport} and {@link EmbeddedServer} serve
+ * recorded responses without any network access, which allows testing and benchmarking offline.
+ *
+ * @see RestRequestHelper#setTransport(Transport)
+ */
+@FunctionalInterface
+public interface Transport {
+    /**
+     * Executes a {@code GET}-Request and hands the response to the given handler.
+     * <p>
+     * The handler is invoked on a thread of the transport, never on the calling thread, and never on a thread of the
+     * {@linkplain java.util.concurrent.ForkJoinPool#commonPool() common pool}. The response body is closed once the
+     * handler returns. Cancelling the returned future should cancel the request.
+     *
+     * @param url     The URL to request.
+     * @param headers The request headers.
+     * @param handler The handler for the response.
+     * @param <T>     Type-variable for the result of the handler.
+     *
+     * @return A future completing with the result of the handler, or exceptionally if the request failed.
+     */
+    <T> CompletableFuture<T> get(URL url, Map<String, String> headers, ResponseHandler<T> handler);
+
+    /**
+     * Handles a response of a {@link Transport}.
+     *
+     * @param <T> Type-variable for the result.
+     */
+    @FunctionalInterface
+    interface ResponseHandler<T> {
+        /**
+         * Handles the response.
+         *
+         * @param response The response.
+         *
+         * @return The result.
+         *
+         * @throws IOException If reading the response fails.
+         */
+        T handle(Response response) throws IOException;
+    }
+
+    /**
+     * A response of a {@link Transport}.
+     */
+    final class Response {
+        private final int code;
+        private final Map<String, String> headers;
+        private final InputStream body;
+
+        /**
+         * Constructor.
+         *
+         * @param code    The HTTP status code.
+         * @param headers The response headers. Header names are case-insensitive.
+         * @param body    The response body.
+         */
+        public Response(int code, Map<String, String> headers, InputStream body) {
+            Map<String, String> caseInsensitive = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            caseInsensitive.putAll(headers);
+
+            this.code = code;
+            this.headers = Collections.unmodifiableMap(caseInsensitive);
+            this.body = body;
+        }
+
+        /**
+         * Gets the HTTP status code of the response.
+         *
+         * @return The status code.
+         */
+        public int getCode() {
+            return code;
+        }
+
+        /**
+         * Gets a response header.
+         *
+         * @param name The case-insensitive name of the header.
+         *
+         * @return The value of the header, or null if it is not present.
+         */
+        public @Nullable String getHeader(String name) {
+            return headers.get(name);
+        }
+
+        /**
+         * Gets all response headers.
+         *
+         * @return An unmodifiable map of the headers, with case-insensitive keys.
+         */
+        public Map<String, String> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * Gets the response body. It must only be read once.
+         *
+         * @return The response body stream.
+         */
+        public InputStream getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package de.kaleidox.discordemoji.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Faults that the offline transports {@link ReplayTransport} and {@link EmbeddedServer} inject into their responses,
+ * to simulate a real network.
+ * <p>
+ * Instances are immutable; every {@code with*} method returns a new instance.
+ */
+public final class TransportFaults {
+    /**
+     * No faults at all: responses are served immediately, at full speed, and never fail.
+     */
+    public static final TransportFaults NONE = new TransportFaults(0, 0, 0, 0, 503);
+
+    private final long latency;
+    private final long latencyJitter;
+    private final long bytesPerSecond;
+    private final double errorRate;
+    private final int errorStatus;
+
+    private TransportFaults(long latency, long latencyJitter, long bytesPerSecond, double errorRate, int errorStatus) {
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.bytesPerSecond = bytesPerSecond;
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Delays every response by the given latency plus a random delay of up to the given jitter, before the first byte
+     * is served.
+     *
+     * @param latency The latency.
+     * @param jitter  The maximum random delay that is added to the latency.
+     * @param unit    The time unit of latency and jitter.
+     *
+     * @return A new instance with the given latency.
+     */
+    public TransportFaults withLatency(long latency, long jitter, TimeUnit unit) {
+        return new TransportFaults(unit.toNanos(latency), unit.toNanos(jitter), bytesPerSecond, errorRate,
+                errorStatus);
+    }
+
+    /**
+     * Limits the rate at which response bodies are served. A rate of {@code 0} disables the limit.
+     *
+     * @param bytesPerSecond The maximum amount of bytes per second.
+     *
+     * @return A new instance with the given bandwidth.
+     */
+    public TransportFaults withBandwidth(long bytesPerSecond) {
+        return new TransportFaults(latency, latencyJitter, bytesPerSecond, errorRate, errorStatus);
+    }
+
+    /**
+     * Fails the given share of all requests.
+     * A failed request is answered with the given HTTP status code and an empty body, or, if the status code is
+     * {@code 0}, fails as if the connection was lost.
+     *
+     * @param errorRate   The share of failing requests, between {@code 0} and {@code 1}.
+     * @param errorStatus The status code of failed requests, or {@code 0}.
+     *
+     * @return A new instance with the given error rate.
+     */
+    public TransportFaults withErrors(double errorRate, int errorStatus) {
+        return new TransportFaults(latency, latencyJitter, bytesPerSecond, errorRate, errorStatus);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransportFaults(latency:%dms,jitter:%dms,bandwidth:%dB/s,errors:%.3f/%d)",
+                TimeUnit.NANOSECONDS.toMillis(latency), TimeUnit.NANOSECONDS.toMillis(latencyJitter),
+                bytesPerSecond, errorRate, errorStatus);
+    }
+
+    /*
+    The latency of the next response, in nanoseconds.
+    */
+    long nextLatency() {
+        return latency + (latencyJitter > 0 ? ThreadLocalRandom.current().nextLong(latencyJitter + 1) : 0);
+    }
+
+    /*
+    Whether the next request fails.
+    */
+    boolean nextError() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    int errorStatus() {
+        return errorStatus;
+    }
+
+    /*
+    Wraps the given body so that it is served no faster than the configured bandwidth.
+    Reading blocks the calling thread, just like reading from a slow socket would.
+    */
+    InputStream throttle(InputStream body) {
+        if (bytesPerSecond <= 0)
+            return body;
+
+        return new FilterInputStream(body) {
+            private final long started = System.nanoTime();
+            private long served = 0;
+
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                int read = super.read(bytes, offset, (int) Math.min(length, Math.max(1, bytesPerSecond / 10)));
+
+                if (read > 0) {
+                    served += read;
+                    pace();
+                }
+                return read;
+            }
+
+            private void pace() throws InterruptedIOException {
+                long due = started + TimeUnit.SECONDS.toNanos(served) / bytesPerSecond;
+                long wait = due - System.nanoTime();
+
+                if (wait > 0)
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Throttled read was interrupted");
+                    }
+            }
+        };
+    }
+}
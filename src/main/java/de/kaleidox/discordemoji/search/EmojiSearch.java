@@ -0,0 +1,437 @@
+package de.kaleidox.discordemoji.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import de.kaleidox.discordemoji.model.CatalogChange;
+import de.kaleidox.discordemoji.model.CatalogListener;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiCatalog;
+import de.kaleidox.util.IntIndex;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A fuzzy search over the titles and slugs of all cached {@link Emoji}s, which is kept up to date with every change
+ * of the {@link EmojiCatalog}.
+ * <p>
+ * Titles and slugs are lowercased, reduced to letters and digits, and split into trigrams, the sequences of three
+ * consecutive characters; every word is padded with spaces, so that word beginnings weigh more. An inverted index
+ * maps every trigram to a sorted array of the IDs of all emojis containing it. Once built, only emojis whose title or
+ * slug changed are re-indexed.
+ * <p>
+ * Queries are split into trigrams the same way. The similarity of an emoji is the Dice coefficient of the trigrams of
+ * query and emoji, so that typos only cost the few trigrams they touch; it is blended with the logarithm of the
+ * {@linkplain Emoji#getFaves() faves} of the emoji, so that popular emojis win among similar results. A query
+ * merges the posting lists of its trigrams and allocates memory only in proportion to the amount of its trigrams and
+ * requested results, no matter how many emojis match.
+ * <p>
+ * All methods are thread-safe; queries run concurrently.
+ */
+public final class EmojiSearch implements CatalogListener, AutoCloseable {
+    /**
+     * The default minimum similarity of returned emojis.
+     */
+    public static final double DEFAULT_MIN_SIMILARITY = 0.3;
+
+    /**
+     * The default weight of faves in the score of returned emojis.
+     */
+    public static final double DEFAULT_FAVES_WEIGHT = 0.1;
+
+    private static final int MAX_QUERY_LENGTH = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Postings> index = new HashMap<>();
+    private final IntIndex<Document> documents = new IntIndex<>();
+
+    private volatile double minSimilarity = DEFAULT_MIN_SIMILARITY;
+    private volatile double favesWeight = DEFAULT_FAVES_WEIGHT;
+    private boolean seeded = false;
+    private int maxFaves = 0;
+    private boolean maxFavesStale = false;
+
+    private EmojiSearch() {
+    }
+
+    /**
+     * Creates a search over the current catalog and keeps it up to date until it is {@linkplain #close() closed}.
+     *
+     * @return The new search.
+     */
+    public static EmojiSearch create() {
+        EmojiSearch search = new EmojiSearch();
+        EmojiCatalog catalog = EmojiCatalog.subscribe(search);
+
+        search.seed(catalog);
+
+        return search;
+    }
+
+    /**
+     * Sets the minimum similarity, between {@code 0} and {@code 1}, that an emoji needs to be returned.
+     *
+     * @param minSimilarity The minimum similarity.
+     */
+    public void setMinSimilarity(double minSimilarity) {
+        this.minSimilarity = minSimilarity;
+    }
+
+    /**
+     * Sets the weight of faves in the score of an emoji. The score is the similarity plus the weight multiplied by
+     * the logarithmic faves of the emoji relative to the most faved emoji; a weight of {@code 0} ranks by similarity
+     * only.
+     *
+     * @param favesWeight The weight of faves.
+     */
+    public void setFavesWeight(double favesWeight) {
+        this.favesWeight = favesWeight;
+    }
+
+    /**
+     * Searches all emojis.
+     *
+     * @param query The query.
+     * @param k     The maximum amount of emojis to return.
+     *
+     * @return A new list of at most {@code k} emojis, ordered by their score, best first.
+     */
+    public List<Emoji> search(String query, int k) {
+        return search(query, -1, k);
+    }
+
+    /**
+     * Searches the emojis in one category.
+     *
+     * @param query         The query.
+     * @param categoryIndex The {@linkplain de.kaleidox.discordemoji.model.EmojiCategory#getIndex() index} of the
+     *                      category, or {@code -1} to search all emojis.
+     * @param k             The maximum amount of emojis to return.
+     *
+     * @return A new list of at most {@code k} emojis, ordered by their score, best first.
+     */
+    public List<Emoji> search(String query, int categoryIndex, int k) {
+        long[] trigrams = trigrams(query.length() > MAX_QUERY_LENGTH ? query.substring(0, MAX_QUERY_LENGTH) : query);
+
+        if (k <= 0 || trigrams.length == 0)
+            return new ArrayList<>();
+
+        double minSimilarity = this.minSimilarity;
+        double favesWeight = this.favesWeight;
+        TopK top;
+
+        lock.readLock().lock();
+        try {
+            if (documents.size() == 0)
+                return new ArrayList<>();
+
+            // there are never more results than documents, no matter how many are requested
+            top = new TopK(Math.min(k, documents.size()));
+
+            int[][] lists = new int[trigrams.length][];
+            int[] sizes = new int[trigrams.length];
+            int[] cursors = new int[trigrams.length];
+            double favesNorm = Math.log1p(maxFaves);
+
+            for (int i = 0; i < trigrams.length; i++) {
+                Postings postings = index.get(trigrams[i]);
+
+                lists[i] = postings == null ? new int[0] : postings.ids;
+                sizes[i] = postings == null ? 0 : postings.size;
+            }
+
+            while (true) {
+                int id = Integer.MAX_VALUE;
+                int shared = 0;
+
+                for (int i = 0; i < lists.length; i++)
+                    if (cursors[i] < sizes[i] && lists[i][cursors[i]] < id)
+                        id = lists[i][cursors[i]];
+                if (id == Integer.MAX_VALUE)
+                    break;
+                for (int i = 0; i < lists.length; i++)
+                    if (cursors[i] < sizes[i] && lists[i][cursors[i]] == id) {
+                        cursors[i]++;
+                        shared++;
+                    }
+
+                Document document = documents.get(id);
+
+                if (document == null || categoryIndex >= 0 && document.category != categoryIndex)
+                    continue;
+
+                double similarity = 2.0 * shared / (trigrams.length + document.trigrams);
+
+                if (similarity < minSimilarity)
+                    continue;
+
+                double popularity = favesNorm > 0 ? Math.log1p(Math.max(0, document.emoji.getFaves())) / favesNorm : 0;
+
+                top.offer(similarity + favesWeight * popularity, document.emoji);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return top.sorted();
+    }
+
+    /**
+     * Stops keeping the search up to date.
+     */
+    @Override
+    public void close() {
+        EmojiCatalog.removeListener(this);
+    }
+
+    @Override
+    public void onEmojiChange(CatalogChange<Emoji> change) {
+        seed(change.getPrevious());
+
+        lock.writeLock().lock();
+        try {
+            for (Emoji emoji : change.getRemoved())
+                remove(emoji.getId());
+            for (Emoji emoji : change.getAdded())
+                add(emoji);
+            for (CatalogChange.Update<Emoji> update : change.getUpdated()) {
+                Emoji emoji = update.getCurrent();
+
+                if (update.getChangedFields().contains("title") || update.getChangedFields().contains("slug")) {
+                    remove(emoji.getId());
+                    add(emoji);
+                } else {
+                    Document previous = documents.get(emoji.getId());
+
+                    if (previous != null) {
+                        documents.put(emoji.getId(), new Document(emoji, previous.trigrams));
+                        if (previous.emoji.getFaves() >= maxFaves && emoji.getFaves() < maxFaves)
+                            maxFavesStale = true;
+                    }
+                    maxFaves = Math.max(maxFaves, emoji.getFaves());
+                }
+            }
+
+            if (maxFavesStale) {
+                maxFaves = 0;
+                for (Document document : documents.values())
+                    maxFaves = Math.max(maxFaves, document.emoji.getFaves());
+                maxFavesStale = false;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EmojiSearch(emojis:%d,trigrams:%d)", documents.size(), index.size());
+    }
+
+    /*
+    Indexes the catalog that the first change is relative to; see FaveLeaderboard for why this may happen on
+    either path.
+    */
+    private void seed(EmojiCatalog catalog) {
+        lock.writeLock().lock();
+        try {
+            if (seeded)
+                return;
+
+            for (Emoji emoji : catalog.getEmojis())
+                add(emoji);
+            seeded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Emoji emoji) {
+        long[] trigrams = trigrams(text(emoji));
+
+        for (long trigram : trigrams)
+            index.computeIfAbsent(trigram, any -> new Postings()).add(emoji.getId());
+
+        documents.put(emoji.getId(), new Document(emoji, trigrams.length));
+        maxFaves = Math.max(maxFaves, emoji.getFaves());
+    }
+
+    private void remove(int id) {
+        Document document = documents.remove(id);
+
+        if (document == null)
+            return;
+        if (document.emoji.getFaves() >= maxFaves)
+            maxFavesStale = true;
+
+        for (long trigram : trigrams(text(document.emoji))) {
+            Postings postings = index.get(trigram);
+
+            if (postings != null && postings.remove(id) && postings.size == 0)
+                index.remove(trigram);
+        }
+    }
+
+    private static String text(Emoji emoji) {
+        return emoji.getSlug() == null ? emoji.getTitle() : emoji.getTitle() + ' ' + emoji.getSlug();
+    }
+
+    /*
+    The distinct trigrams of a text, sorted. Words are the runs of letters and digits, lowercased, and every
+    word is preceded by two spaces and followed by one, so "pepe" yields "  p", " pe", "pep", "epe" and "pe ".
+    A trigram is packed into a long of three 16-bit characters; trigrams never span two words.
+    */
+    private static long[] trigrams(@Nullable String text) {
+        if (text == null)
+            return new long[0];
+
+        long[] trigrams = new long[text.length() + 1];
+        int count = 0;
+        long window = ' ' << 16 | ' ';
+        boolean inWord = false;
+
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? Character.toLowerCase(text.charAt(i)) : ' ';
+
+            if (Character.isLetterOrDigit(c)) {
+                window = (window << 16 | c) & 0xFFFF_FFFF_FFFFL;
+                trigrams[count++] = window;
+                inWord = true;
+            } else if (inWord) {
+                trigrams[count++] = (window << 16 | ' ') & 0xFFFF_FFFF_FFFFL;
+                window = ' ' << 16 | ' ';
+                inWord = false;
+            }
+        }
+
+        Arrays.sort(trigrams, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++)
+            if (i == 0 || trigrams[i] != trigrams[i - 1])
+                trigrams[distinct++] = trigrams[i];
+
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    private static final class Document {
+        private final Emoji emoji;
+        private final int trigrams;
+        private final int category;
+
+        private Document(Emoji emoji, int trigrams) {
+            this.emoji = emoji;
+            this.trigrams = trigrams;
+            this.category = emoji.getCategory().getPromisedValue();
+        }
+    }
+
+    /*
+    A sorted, growable array of emoji IDs. IDs are mostly added in ascending order, which appends.
+    */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        private void add(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+
+            if (at >= 0)
+                return;
+            at = -at - 1;
+
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+
+            if (at < 0)
+                return false;
+
+            System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+            size--;
+            return true;
+        }
+    }
+
+    /*
+    The k best results in a min-heap on two parallel arrays, so that offering a result never allocates.
+    */
+    private static final class TopK {
+        private final double[] scores;
+        private final Emoji[] emojis;
+        private int size = 0;
+
+        private TopK(int k) {
+            this.scores = new double[k];
+            this.emojis = new Emoji[k];
+        }
+
+        private void offer(double score, Emoji emoji) {
+            if (size < scores.length) {
+                scores[size] = score;
+                emojis[size] = emoji;
+                up(size++);
+            } else if (score > scores[0]) {
+                scores[0] = score;
+                emojis[0] = emoji;
+                down(0);
+            }
+        }
+
+        private List<Emoji> sorted() {
+            Emoji[] yields = new Emoji[size];
+
+            while (size > 0) {
+                yields[size - 1] = emojis[0];
+                swap(0, --size);
+                down(0);
+            }
+
+            return new ArrayList<>(Arrays.asList(yields));
+        }
+
+        private void up(int i) {
+            for (int parent; i > 0 && scores[parent = (i - 1) / 2] > scores[i]; i = parent)
+                swap(i, parent);
+        }
+
+        private void down(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+
+                if (left < size && scores[left] < scores[smallest])
+                    smallest = left;
+                if (right < size && scores[right] < scores[smallest])
+                    smallest = right;
+                if (smallest == i)
+                    return;
+
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            double score = scores[a];
+            Emoji emoji = emojis[a];
+
+            scores[a] = scores[b];
+            emojis[a] = emojis[b];
+            scores[b] = score;
+            emojis[b] = emoji;
+        }
+    }
+}
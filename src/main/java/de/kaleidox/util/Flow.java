@@ -0,0 +1,82 @@
+package de.kaleidox.util;
+
+/**
+ * Interfaces for streams of items with backpressure, following the
+ * <a href="https://www.reactive-streams.org/">Reactive Streams</a> specification.
+ * <p>
+ * The interfaces have the same methods as their counterparts in {@code org.reactivestreams} and in
+ * {@code java.util.concurrent.Flow} of Java 9, which this library cannot depend on; adapting them to either is a
+ * matter of delegating every method.
+ */
+public final class Flow {
+    private Flow() {
+        // nope
+    }
+
+    /**
+     * A producer of items that are received by {@link Subscriber}s.
+     *
+     * @param <T> Type-variable for the items.
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+        /**
+         * Adds the given subscriber. The subscriber first receives {@link Subscriber#onSubscribe(Subscription)},
+         * and then items as it requests them.
+         *
+         * @param subscriber The subscriber.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods of one subscriber are never invoked concurrently.
+     *
+     * @param <T> Type-variable for the items.
+     */
+    public interface Subscriber<T> {
+        /**
+         * Invoked before any other method, with the subscription to request items from.
+         *
+         * @param subscription The subscription.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Invoked with the next item. Only invoked for items that were requested.
+         *
+         * @param item The item.
+         */
+        void onNext(T item);
+
+        /**
+         * Invoked once the subscription failed. No further method is invoked afterwards.
+         *
+         * @param throwable The failure.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Invoked once all items were received. No further method is invoked afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between a {@link Publisher} and one of its {@link Subscriber}s.
+     */
+    public interface Subscription {
+        /**
+         * Requests the given amount of further items. Requests add up; {@link Long#MAX_VALUE} requests all items.
+         *
+         * @param n The amount of items. Must be positive; otherwise, the subscriber receives an
+         *          {@link IllegalArgumentException}.
+         */
+        void request(long n);
+
+        /**
+         * Stops sending items. The subscriber may still receive items that were already on their way.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,178 @@
+package de.kaleidox.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A map from primitive {@code int} keys to values, optimized for dense, non-negative keys such as database IDs.
+ * <p>
+ * Keys between {@code 0} and {@link #MAX_DENSE_KEY} are stored in an array indexed by the key itself,
+ * so lookups are a single array read without hashing or boxing. The array only grows as long as at least a quarter
+ * of it would be in use, so that few sparse, large keys do not allocate a huge array. Any other key is stored in an
+ * overflow map, and is moved into the array once it has grown far enough.
+ * <p>
+ * Reads never lock and may happen concurrently to writes; writes are serialized.
+ *
+ * @param <V> Type-variable for the values.
+ */
+public final class IntIndex<V> {
+    /**
+     * The largest key that may be stored in the dense array.
+     */
+    public static final int MAX_DENSE_KEY = (1 << 22) - 1;
+
+    private static final int MIN_DENSE_LENGTH = 1024;
+    private static final int MIN_FILL_FACTOR = 4;
+
+    private final Map<Integer, V> overflow = new ConcurrentHashMap<>();
+
+    private volatile AtomicReferenceArray<V> dense = new AtomicReferenceArray<>(16);
+    private volatile int size = 0;
+
+    /**
+     * Gets the value mapped to the given key.
+     *
+     * @param key The key.
+     *
+     * @return The value, or null if there is no value for the key.
+     */
+    public @Nullable V get(int key) {
+        AtomicReferenceArray<V> dense = this.dense;
+
+        if (key >= 0 && key < dense.length())
+            return dense.get(key);
+        return overflow.get(key);
+    }
+
+    /**
+     * Maps the given key to the given value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @return The previous value, or null if there was none.
+     */
+    public synchronized @Nullable V put(int key, V value) {
+        V old = get(key);
+
+        compute(key, any -> value);
+
+        return old;
+    }
+
+    /**
+     * Removes the value mapped to the given key.
+     *
+     * @param key The key.
+     *
+     * @return The removed value, or null if there was none.
+     */
+    public synchronized @Nullable V remove(int key) {
+        V old;
+
+        if (key >= 0 && key < dense.length())
+            old = dense.getAndSet(key, null);
+        else old = overflow.remove(key);
+
+        if (old != null)
+            size--;
+        return old;
+    }
+
+    /**
+     * Atomically recomputes the value for the given key.
+     *
+     * @param key      The key.
+     * @param function A function computing the new value from the current value, which might be null.
+     *                 If the function returns null, the key is removed.
+     *
+     * @return The new value, or null if the key was removed.
+     */
+    public synchronized @Nullable V compute(int key, UnaryOperator<V> function) {
+        V old = get(key);
+        V value = function.apply(old);
+
+        if (value == null) {
+            remove(key);
+            return null;
+        }
+
+        if (key >= 0 && ensureCapacity(key))
+            dense.set(key, value);
+        else overflow.put(key, value);
+
+        if (old == null)
+            size++;
+        return value;
+    }
+
+    /**
+     * Returns the amount of mapped keys.
+     *
+     * @return The size of the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a new collection of all values in this index, ordered by their key where possible.
+     *
+     * @return A new collection of all values.
+     */
+    public Collection<V> values() {
+        AtomicReferenceArray<V> dense = this.dense;
+        Collection<V> yields = new ArrayList<>(size);
+        V value;
+
+        for (int i = 0; i < dense.length(); i++)
+            if ((value = dense.get(i)) != null)
+                yields.add(value);
+        // keys below the length are being moved into the array, and were already collected from it
+        for (Map.Entry<Integer, V> entry : overflow.entrySet())
+            if (entry.getKey() < 0 || entry.getKey() >= dense.length())
+                yields.add(entry.getValue());
+
+        return yields;
+    }
+
+    /*
+    Grows the array to fit the key, unless the key is too large, or the array would be filled by less than a
+    quarter. Keys of the overflow map that fit the grown array are moved into it; they are removed from the map only
+    after the array is published, so that concurrent reads always find them.
+    */
+    private boolean ensureCapacity(int key) {
+        AtomicReferenceArray<V> dense = this.dense;
+
+        if (key < dense.length())
+            return true;
+
+        long limit = Math.min(MAX_DENSE_KEY + 1L, Math.max(MIN_DENSE_LENGTH, (size + 1L) * MIN_FILL_FACTOR));
+
+        if (key >= limit)
+            return false;
+
+        int length = (int) Math.min(limit, Math.max(key + 1L, dense.length() * 3L / 2));
+        AtomicReferenceArray<V> grown = new AtomicReferenceArray<>(length);
+        Collection<Integer> moved = new ArrayList<>();
+
+        for (int i = 0; i < dense.length(); i++)
+            grown.set(i, dense.get(i));
+        for (Map.Entry<Integer, V> entry : overflow.entrySet())
+            if (entry.getKey() >= 0 && entry.getKey() < length) {
+                grown.set(entry.getKey(), entry.getValue());
+                moved.add(entry.getKey());
+            }
+
+        this.dense = grown;
+        overflow.keySet().removeAll(moved);
+
+        return true;
+    }
+}
@@ -12,7 +12,7 @@ import org.jetbrains.annotations.Nullable;
  * <p>
  * A value of type {@code P} is always available (thus; promised).
  * <p>
- * Used by {@link Emoji#getCategory()}.
+ * Used by {@link Emoji#getCategory()}. All methods are thread-safe; concurrent calls may both invoke the mapper.
  *
  * @param <P> Type-variable for the promised value.
  * @param <T> Type-variable for the possibly existing value.
@@ -21,7 +21,7 @@ public final class PromisedValue<P, T> {
     private final P promisedValue;
     private final NullableFunction<P, T> mapper;
 
-    private @Nullable T possibleValue = null;
+    private volatile @Nullable T possibleValue = null;
 
     /**
      * Constructor.
@@ -34,6 +34,24 @@ public final class PromisedValue<P, T> {
         this.mapper = mapper;
     }
 
+    /**
+     * Creates an instance whose possible value is already known.
+     *
+     * @param promisedValue The promised value.
+     * @param possibleValue The possible value.
+     * @param <P>           Type-variable for the promised value.
+     * @param <T>           Type-variable for the possible value.
+     *
+     * @return The new instance.
+     */
+    public static <P, T> PromisedValue<P, T> of(P promisedValue, T possibleValue) {
+        PromisedValue<P, T> value = new PromisedValue<>(promisedValue, any -> possibleValue);
+
+        value.possibleValue = possibleValue;
+
+        return value;
+    }
+
     /**
      * Returns the promised value.
      *
@@ -53,8 +71,10 @@ public final class PromisedValue<P, T> {
      * @return The possible value.
      */
     public Optional<T> getPossibleValue() {
+        T possibleValue = this.possibleValue;
+
         return possibleValue == null
-                ? Optional.ofNullable(possibleValue = (mapper.apply(promisedValue)))
+                ? Optional.ofNullable(this.possibleValue = mapper.apply(promisedValue))
                 : Optional.of(possibleValue);
     }
 
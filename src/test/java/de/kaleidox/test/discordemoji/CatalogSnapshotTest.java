@@ -0,0 +1,104 @@
+package de.kaleidox.test.discordemoji;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+import de.kaleidox.discordemoji.rest.Endpoint;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CatalogSnapshotTest {
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Path file = Files.createTempDirectory("discordemoji").resolve("catalog.snapshot");
+
+        merge(emoji(90001, "snapshotted", 5));
+        DiscordEmoji.saveSnapshot(file);
+
+        merge(emoji(90001, "snapshotted", 6));
+        assertEquals(6, Emoji.getByID(90001).orElseThrow(AssertionError::new).getFaves());
+
+        assertTrue(DiscordEmoji.loadSnapshot(file));
+        Emoji emoji = Emoji.getByID(90001).orElseThrow(AssertionError::new);
+        assertEquals(5, emoji.getFaves());
+        assertEquals("snapshotted", emoji.getTitle());
+        assertEquals("https://emoji.gg/assets/emoji/snapshotted.png", emoji.getImageURL().toExternalForm());
+    }
+
+    @Test
+    public void testLoadForgetsValidators() throws IOException {
+        Path directory = Files.createTempDirectory("discordemoji");
+        Path file = directory.resolve("catalog.snapshot");
+
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_PACKS.url)),
+                ("[{\"id\":90101,\"name\":\"Served\",\"slug\":\"served\",\"amount\":2,"
+                        + "\"image\":\"https://emoji.gg/assets/packs/served.png\","
+                        + "\"download\":\"https://emoji.gg/packs/served.zip\"}]").getBytes(StandardCharsets.UTF_8));
+        DiscordEmoji.saveSnapshot(file);
+
+        try (ReplayTransport transport = new ReplayTransport(directory)) {
+            RestRequestHelper.setTransport(transport);
+            RestRequestHelper.invalidate(Endpoint.LIST_ALL_PACKS);
+            DiscordEmoji.refreshEmojiPackCache().join();
+            assertTrue(DiscordEmoji.loadSnapshot(file));
+            assertFalse(EmojiPack.getByID(90101).isPresent());
+
+            DiscordEmoji.refreshEmojiPackCache().join();
+
+            assertTrue(EmojiPack.getByID(90101).isPresent());
+        } finally {
+            RestRequestHelper.setTransport(null);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedSnapshot() throws IOException {
+        Path file = Files.createTempDirectory("discordemoji").resolve("catalog.snapshot");
+
+        merge(emoji(90002, "corrupted", 1));
+        DiscordEmoji.saveSnapshot(file);
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(file, bytes);
+
+        DiscordEmoji.loadSnapshot(file);
+    }
+
+    @Test
+    public void testMissingSnapshot() throws IOException {
+        assertFalse(DiscordEmoji.loadSnapshot(Files.createTempDirectory("discordemoji").resolve("missing")));
+    }
+
+    private static void merge(ObjectNode emoji) {
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.merge();
+
+        batch.add(emoji, 0);
+        batch.publish();
+    }
+
+    private static ObjectNode emoji(int id, String title, int faves) {
+        return JsonNodeFactory.instance.objectNode()
+                .put("id", id)
+                .put("title", title)
+                .put("slug", title)
+                .put("image", "https://emoji.gg/assets/emoji/" + title + ".png")
+                .put("category", 1)
+                .put("faves", faves);
+    }
+}
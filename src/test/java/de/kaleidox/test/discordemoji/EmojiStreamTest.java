@@ -0,0 +1,119 @@
+package de.kaleidox.test.discordemoji;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiCatalog;
+import de.kaleidox.discordemoji.rest.Endpoint;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+import de.kaleidox.util.Flow;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EmojiStreamTest {
+    @Before
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("discordemoji");
+        StringBuilder emojis = new StringBuilder("[");
+
+        for (int id = 96001; id <= 96003; id++)
+            emojis.append(id == 96001 ? "" : ",").append("{\"id\":").append(id).append(",\"title\":\"streamed")
+                    .append(id).append("\",\"image\":\"https://emoji.gg/assets/emoji/").append(id).append(".png\"}");
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_EMOJIS.url)),
+                emojis.append(']').toString().getBytes(StandardCharsets.UTF_8));
+
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+    }
+
+    @After
+    public void tearDown() {
+        RestRequestHelper.setTransport(null);
+    }
+
+    @Test
+    public void testDemandLimitsEmission() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+
+        DiscordEmoji.streamEmojis().subscribe(subscriber);
+
+        assertTrue(subscriber.first.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, subscriber.received.size());
+        assertFalse(Emoji.getByID(96003).isPresent());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertEquals(3, subscriber.received.size());
+        assertEquals(96003, subscriber.received.get(2).getId());
+        assertTrue(subscriber.completed);
+        assertFalse(Emoji.getByID(96003).isPresent());
+    }
+
+    @Test
+    public void testCancelKeepsCache() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        long version = EmojiCatalog.current().getVersion();
+
+        DiscordEmoji.streamEmojis().subscribe(subscriber);
+
+        assertTrue(subscriber.first.await(5, TimeUnit.SECONDS));
+        subscriber.subscription.cancel();
+        Thread.sleep(100);
+
+        assertEquals(1, subscriber.received.size());
+        assertEquals(1, subscriber.done.getCount());
+        assertEquals(version, EmojiCatalog.current().getVersion());
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<Emoji> {
+        private final long initialDemand;
+        private final List<Emoji> received = new CopyOnWriteArrayList<>();
+        private final CountDownLatch first = new CountDownLatch(1);
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile boolean completed = false;
+
+        private RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(Emoji item) {
+            received.add(item);
+            first.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+}
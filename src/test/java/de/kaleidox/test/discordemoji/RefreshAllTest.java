@@ -0,0 +1,79 @@
+package de.kaleidox.test.discordemoji;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.RefreshSummary;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.rest.Endpoint;
+import de.kaleidox.discordemoji.rest.HttpStatusException;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshAllTest {
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        RestRequestHelper.setTransport(null);
+        DiscordEmoji.setParseExecutor(null);
+        executor.shutdown();
+    }
+
+    @Test
+    public void testPartialFailureKeepsLastGoodData() throws IOException {
+        Path directory = Files.createTempDirectory("discordemoji");
+
+        write(directory, Endpoint.LIST_ALL_EMOJIS, "[{\"id\":95001,\"title\":\"linked\",\"category\":1,"
+                + "\"image\":\"https://emoji.gg/assets/emoji/linked.png\"},{\"id\":95002,\"title\":\"orphan\","
+                + "\"category\":9,\"image\":\"https://emoji.gg/assets/emoji/orphan.png\"}]");
+        write(directory, Endpoint.LIST_ALL_PACKS, "[{\"id\":95001,\"name\":\"Kept\",\"slug\":\"kept\",\"amount\":1,"
+                + "\"image\":\"https://emoji.gg/assets/packs/kept.png\","
+                + "\"download\":\"https://emoji.gg/packs/kept.zip\"}]");
+        write(directory, Endpoint.LIST_ALL_CATEGORIES, "{\"1\":\"Original Style\",\"2\":\"TV / Movie\"}");
+        for (Endpoint endpoint : Endpoint.values())
+            RestRequestHelper.invalidate(endpoint);
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+        DiscordEmoji.setParseExecutor(executor);
+
+        RefreshSummary summary = DiscordEmoji.refreshAll().join();
+
+        assertFalse(summary.isComplete());
+        assertEquals(2, summary.getResult(Endpoint.LIST_ALL_EMOJIS).getCount());
+        assertEquals(1, summary.getResult(Endpoint.LIST_ALL_PACKS).getCount());
+        assertEquals(2, summary.getResult(Endpoint.LIST_ALL_CATEGORIES).getCount());
+        assertTrue(summary.getResult(Endpoint.LIST_WEBSITE_STATS).getError()
+                .map(Throwable::getCause)
+                .filter(HttpStatusException.class::isInstance)
+                .isPresent());
+        assertFalse(summary.getPageStats().isPresent());
+        assertEquals(1, summary.getOrphanedEmojis());
+
+        Files.delete(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_PACKS.url)));
+        write(directory, Endpoint.LIST_WEBSITE_STATS, "{\"emoji\":2,\"users\":1,\"faves\":0,\"pending_approvals\":0}");
+        RestRequestHelper.invalidate(Endpoint.LIST_ALL_PACKS);
+
+        summary = DiscordEmoji.refreshAll().join();
+
+        assertFalse(summary.getResult(Endpoint.LIST_ALL_PACKS).isSuccess());
+        assertEquals(2, summary.getPageStats().orElseThrow(AssertionError::new).getEmojiCount());
+        assertTrue(EmojiPack.getAll().stream().anyMatch(pack -> pack.getId() == 95001));
+    }
+
+    private static void write(Path directory, Endpoint endpoint, String content) throws IOException {
+        Files.write(directory.resolve(ReplayTransport.getFileName(endpoint.url)),
+                content.getBytes(StandardCharsets.UTF_8));
+    }
+}
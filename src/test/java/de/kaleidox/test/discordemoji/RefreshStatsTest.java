@@ -0,0 +1,62 @@
+package de.kaleidox.test.discordemoji;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.RefreshStats;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+import de.kaleidox.discordemoji.rest.Endpoint;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshStatsTest {
+    @Test
+    public void testServeLoadedSnapshotWithinTimeToLive() throws IOException {
+        Path file = Files.createTempDirectory("discordemoji").resolve("catalog.snapshot");
+
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.merge();
+
+        batch.add(JsonNodeFactory.instance.objectNode()
+                .put("id", 94001)
+                .put("title", "fresh")
+                .put("image", "https://emoji.gg/assets/emoji/fresh.png"), 0);
+        batch.publish();
+        DiscordEmoji.saveSnapshot(file);
+        assertTrue(DiscordEmoji.loadSnapshot(file));
+
+        DiscordEmoji.setTimeToLive(Endpoint.LIST_ALL_EMOJIS, 1, 2, TimeUnit.HOURS);
+        RefreshStats stats = DiscordEmoji.getRefreshStats(Endpoint.LIST_ALL_EMOJIS);
+        CompletableFuture<Collection<Emoji>> emojis = DiscordEmoji.requestEmojiCache();
+
+        assertTrue(emojis.isDone());
+        assertTrue(emojis.join().stream().anyMatch(emoji -> emoji.getId() == 94001));
+        assertFalse(stats.isStale());
+        assertTrue(stats.getDataAge(TimeUnit.MINUTES) < 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositivePeriod() {
+        DiscordEmoji.scheduleRefresh(Endpoint.LIST_ALL_EMOJIS, 0, 1, TimeUnit.MINUTES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeJitter() {
+        DiscordEmoji.scheduleRefresh(Endpoint.LIST_ALL_EMOJIS, 1, -1, TimeUnit.MINUTES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEndpointWithoutCache() {
+        DiscordEmoji.getRefreshStats(Endpoint.LIST_WEBSITE_STATS);
+    }
+}
@@ -0,0 +1,96 @@
+package de.kaleidox.test.discordemoji.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import de.kaleidox.discordemoji.image.EmojiImageCache;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class EmojiImageCacheTest {
+    private static final byte[] IMAGE = "not really a png".getBytes();
+
+    private Path images;
+    private Path cache;
+
+    @Before
+    public void setUp() throws IOException {
+        images = Files.createTempDirectory("discordemoji");
+        cache = Files.createTempDirectory("discordemoji");
+
+        RestRequestHelper.setTransport(new ReplayTransport(images));
+    }
+
+    @After
+    public void tearDown() {
+        RestRequestHelper.setTransport(null);
+    }
+
+    @Test
+    public void testDeduplicateAndServeFromDisk() throws IOException {
+        Emoji first = emoji(95001, "https://emoji.gg/assets/emoji/first.png", IMAGE, IMAGE.length);
+        Emoji second = emoji(95002, "https://emoji.gg/assets/emoji/second.png", IMAGE, 0);
+        EmojiImageCache imageCache = new EmojiImageCache(cache);
+
+        Map<Emoji, Path> paths = imageCache.fetchAll(Arrays.asList(first, second)).join();
+
+        assertEquals(paths.get(first), paths.get(second));
+        assertArrayEquals(IMAGE, Files.readAllBytes(paths.get(first)));
+
+        RestRequestHelper.setTransport(null);
+        EmojiImageCache reopened = new EmojiImageCache(cache);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertNotNull(reopened.getCached(first));
+        assertEquals(IMAGE.length, (long) reopened.transferTo(first, Channels.newChannel(out)).join());
+        assertArrayEquals(IMAGE, out.toByteArray());
+    }
+
+    @Test
+    public void testRejectWrongFilesize() throws IOException {
+        Emoji emoji = emoji(95003, "https://emoji.gg/assets/emoji/truncated.png", IMAGE, IMAGE.length + 1);
+        EmojiImageCache imageCache = new EmojiImageCache(cache);
+
+        try {
+            imageCache.fetch(emoji).join();
+            fail("Image with wrong size was cached");
+        } catch (CompletionException expected) {
+            assertNull(imageCache.getCached(emoji));
+        }
+    }
+
+    private Emoji emoji(int id, String url, byte[] image, int filesize) throws IOException {
+        Files.write(images.resolve(ReplayTransport.getFileName(new URL(url))), image);
+
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.merge();
+        Emoji emoji = batch.add(JsonNodeFactory.instance.objectNode()
+                .put("id", id)
+                .put("title", "image" + id)
+                .put("image", url)
+                .put("filesize", filesize), 0);
+
+        batch.publish();
+        return emoji;
+    }
+}
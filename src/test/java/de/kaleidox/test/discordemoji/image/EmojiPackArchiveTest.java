@@ -0,0 +1,114 @@
+package de.kaleidox.test.discordemoji.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import de.kaleidox.discordemoji.image.EmojiImageCache;
+import de.kaleidox.discordemoji.image.EmojiPackArchive;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class EmojiPackArchiveTest {
+    private static final String DOWNLOAD = "https://emoji.gg/packs/96000_archived.zip";
+
+    private Path responses;
+    private Emoji bySlug;
+    private Emoji byTitle;
+    private EmojiPack pack;
+
+    @Before
+    public void setUp() throws IOException {
+        responses = Files.createTempDirectory("discordemoji");
+        EntityMaterializer.Batch<Emoji> emojis = Materializers.EMOJI.merge();
+        EntityMaterializer.Batch<EmojiPack> packs = Materializers.EMOJI_PACK.merge();
+
+        bySlug = emojis.add(JsonNodeFactory.instance.objectNode()
+                .put("id", 96001)
+                .put("title", "archived slug")
+                .put("slug", "96001_archived")
+                .put("image", "https://emoji.gg/assets/emoji/96001_archived.png"), 0);
+        byTitle = emojis.add(JsonNodeFactory.instance.objectNode()
+                .put("id", 96002)
+                .put("title", "Archived Title")
+                .put("image", "https://emoji.gg/assets/emoji/96002_title.png"), 1);
+        pack = packs.add(JsonNodeFactory.instance.objectNode()
+                .put("id", 96000)
+                .put("name", "Archived")
+                .put("slug", "archived")
+                .put("image", "https://emoji.gg/assets/packs/archived.png")
+                .put("download", DOWNLOAD)
+                .put("amount", 3), 0);
+        emojis.publish();
+        packs.publish();
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("archived/"));
+            zip.putNextEntry(new ZipEntry("archived/96001_archived.png"));
+            zip.write(new byte[]{1, 2, 3});
+            zip.putNextEntry(new ZipEntry("archived/archived_title.gif"));
+            zip.write(new byte[]{4, 5});
+            zip.putNextEntry(new ZipEntry("archived/readme.txt"));
+            zip.write(new byte[]{6});
+        }
+
+        Files.write(responses.resolve(ReplayTransport.getFileName(new URL(DOWNLOAD))), archive.toByteArray());
+        RestRequestHelper.setTransport(new ReplayTransport(responses));
+    }
+
+    @After
+    public void tearDown() {
+        RestRequestHelper.setTransport(null);
+    }
+
+    @Test
+    public void testReadAndLink() {
+        List<String> names = new ArrayList<>();
+
+        Collection<Emoji> emojis = EmojiPackArchive.read(pack, (entry, content) -> {
+            names.add(entry.getName());
+            assertEquals(entry.getName().endsWith(".txt"), !entry.getEmoji().isPresent());
+        }).join();
+
+        assertEquals(3, names.size());
+        assertEquals(2, emojis.size());
+        assertTrue(emojis.contains(bySlug));
+        assertTrue(emojis.contains(byTitle));
+    }
+
+    @Test
+    public void testExtractToCache() throws IOException {
+        EmojiImageCache cache = new EmojiImageCache(Files.createTempDirectory("discordemoji"));
+
+        assertFalse(EmojiPackArchive.extractTo(pack, cache).join().isEmpty());
+
+        Path image = cache.getCached(byTitle);
+
+        assertNotNull(image);
+        assertArrayEquals(new byte[]{4, 5}, Files.readAllBytes(image));
+    }
+}
@@ -0,0 +1,91 @@
+package de.kaleidox.test.discordemoji.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import de.kaleidox.discordemoji.leaderboard.FaveLeaderboard;
+import de.kaleidox.discordemoji.model.CatalogChange;
+import de.kaleidox.discordemoji.model.CatalogListener;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiCatalog;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FaveLeaderboardTest {
+    @Test
+    public void testIncrementalRanking() {
+        emoji(99001, 4242, 50_000_003);
+
+        try (FaveLeaderboard leaderboard = FaveLeaderboard.create()) {
+            emoji(99002, 4242, 50_000_002);
+            emoji(99003, 4243, 50_000_001);
+
+            assertEquals(Arrays.asList(99001, 99002, 99003), ids(leaderboard.getTop(3)));
+            assertEquals(Arrays.asList(99001, 99002), ids(leaderboard.getTopInCategory(4242, 5)));
+
+            emoji(99003, 4242, 50_000_010);
+
+            assertEquals(Arrays.asList(99003, 99001, 99002), ids(leaderboard.getTop(3)));
+            assertEquals(Arrays.asList(99003, 99001, 99002), ids(leaderboard.getTopInCategory(4242, 5)));
+            assertTrue(leaderboard.getTopInCategory(4243, 5).isEmpty());
+            assertEquals(Arrays.asList(99003), ids(leaderboard.getTrending(5)));
+            assertEquals(9, leaderboard.getGrowth(Emoji.getByID(99003).get()));
+
+            emoji(99002, 4242, 50_000_012);
+
+            assertEquals(Arrays.asList(99002), ids(leaderboard.getTrending(5)));
+            assertEquals(0, leaderboard.getGrowth(Emoji.getByID(99003).get()));
+        }
+    }
+
+    @Test
+    public void testRepeatedAddition() {
+        List<CatalogChange<Emoji>> changes = new ArrayList<>();
+        CatalogListener listener = new CatalogListener() {
+            @Override
+            public void onEmojiChange(CatalogChange<Emoji> change) {
+                changes.add(change);
+            }
+        };
+
+        try (FaveLeaderboard leaderboard = FaveLeaderboard.create()) {
+            EmojiCatalog.addListener(listener);
+            try {
+                emoji(99101, 4244, 1);
+            } finally {
+                EmojiCatalog.removeListener(listener);
+            }
+
+            emoji(99101, 4245, 2);
+            leaderboard.onEmojiChange(changes.get(0));
+
+            assertEquals(Arrays.asList(99101), ids(leaderboard.getTopInCategory(4244, 5)));
+            assertTrue(leaderboard.getTopInCategory(4245, 5).isEmpty());
+            assertEquals(1, ids(leaderboard.getTop(Integer.MAX_VALUE)).stream().filter(id -> id == 99101).count());
+        }
+    }
+
+    private static void emoji(int id, int category, int faves) {
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.merge();
+
+        batch.add(JsonNodeFactory.instance.objectNode()
+                .put("id", id)
+                .put("title", "ranked" + id)
+                .put("image", "https://emoji.gg/assets/emoji/ranked" + id + ".png")
+                .put("category", category)
+                .put("faves", faves), 0);
+        batch.publish();
+    }
+
+    private static List<Integer> ids(List<Emoji> emojis) {
+        return emojis.stream().map(Emoji::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,99 @@
+package de.kaleidox.test.discordemoji.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.metrics.Histogram;
+import de.kaleidox.discordemoji.metrics.HistogramMetrics;
+import de.kaleidox.discordemoji.metrics.Lookup;
+import de.kaleidox.discordemoji.metrics.Metrics;
+import de.kaleidox.discordemoji.metrics.MetricsListener;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.rest.Endpoint;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramMetricsTest {
+    @After
+    public void tearDown() {
+        Metrics.setListener(null);
+        RestRequestHelper.setTransport(null);
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new Histogram();
+
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i * 1000L);
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_500, histogram.getMean(), 0.001);
+        assertTrue(Math.abs(histogram.getPercentile(50) - 500_000) <= 500_000 / 8);
+        assertTrue(Math.abs(histogram.getPercentile(99) - 990_000) <= 990_000 / 8);
+        assertEquals(1_000_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testRecordRefresh() throws IOException {
+        Path directory = Files.createTempDirectory("discordemoji");
+        byte[] body = ("[{\"id\":97001,\"name\":\"Measured\",\"slug\":\"measured\",\"amount\":1,"
+                + "\"image\":\"https://emoji.gg/assets/packs/measured.png\","
+                + "\"download\":\"https://emoji.gg/packs/measured.zip\"}]").getBytes(StandardCharsets.UTF_8);
+        HistogramMetrics metrics = new HistogramMetrics();
+
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_PACKS.url)), body);
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+        RestRequestHelper.invalidate(Endpoint.LIST_ALL_PACKS);
+        Metrics.setListener(metrics);
+
+        DiscordEmoji.refreshEmojiPackCache().join();
+        EmojiPack.getByID(97001);
+        EmojiPack.getByID(-1);
+
+        assertEquals(1, metrics.getRequestLatency(Endpoint.LIST_ALL_PACKS).getCount());
+        assertEquals(body.length, metrics.getResponseBytes(Endpoint.LIST_ALL_PACKS).getMax());
+        assertEquals(1, metrics.getParseTime(Endpoint.LIST_ALL_PACKS).getCount());
+        assertEquals(1, metrics.getRefreshTime(Endpoint.LIST_ALL_PACKS).getCount());
+        assertEquals(1, metrics.getCreated(EmojiPack.class) + metrics.getUpdated(EmojiPack.class)
+                + metrics.getUnchanged(EmojiPack.class));
+        assertEquals(0.5, metrics.getHitRatio(Lookup.EMOJI_PACK_BY_ID), 0.001);
+    }
+
+    @Test
+    public void testRequestByIDRecordsOneLookup() throws IOException {
+        Path directory = Files.createTempDirectory("discordemoji");
+        byte[] body = ("[{\"id\":97101,\"title\":\"requested\",\"slug\":\"requested\",\"faves\":1,"
+                + "\"category\":1,\"image\":\"https://emoji.gg/assets/emoji/requested.png\"}]")
+                .getBytes(StandardCharsets.UTF_8);
+        List<Boolean> lookups = new ArrayList<>();
+
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_EMOJIS.url)), body);
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+        RestRequestHelper.invalidate(Endpoint.LIST_ALL_EMOJIS);
+        Metrics.setListener(new MetricsListener() {
+            @Override
+            public void onLookup(Lookup lookup, boolean hit) {
+                if (lookup == Lookup.EMOJI_BY_ID)
+                    lookups.add(hit);
+            }
+        });
+
+        assertEquals(97101, Emoji.requestByID(97101).join().getId());
+        assertEquals(Collections.singletonList(false), lookups);
+    }
+}
@@ -0,0 +1,222 @@
+package de.kaleidox.test.discordemoji.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import de.kaleidox.discordemoji.model.CatalogChange;
+import de.kaleidox.discordemoji.model.CatalogListener;
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EmojiCatalog;
+import de.kaleidox.discordemoji.model.EmojiCategory;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+import de.kaleidox.util.PromisedValue;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EmojiCatalogTest {
+    @Test
+    public void testPinnedCatalogIsUnaffectedByRefresh() {
+        refresh(emoji(91001, "pinned", 1), emoji(91002, "removed", 1));
+        EmojiCatalog pinned = EmojiCatalog.current();
+
+        refresh(emoji(91001, "pinned", 2), emoji(91003, "added", 1));
+        EmojiCatalog current = EmojiCatalog.current();
+
+        assertTrue(current.getVersion() > pinned.getVersion());
+        assertEquals(1, pinned.getEmojiByID(91001).orElseThrow(AssertionError::new).getFaves());
+        assertTrue(pinned.getEmojiByID(91002).isPresent());
+        assertFalse(pinned.getEmojiByID(91003).isPresent());
+        assertEquals(2, current.getEmojiByID(91001).orElseThrow(AssertionError::new).getFaves());
+        assertFalse(current.getEmojiByID(91002).isPresent());
+        assertEquals("added", current.getEmojiBySlug("added").orElseThrow(AssertionError::new).getTitle());
+    }
+
+    @Test
+    public void testVersionsOfUnchangedEmojis() {
+        refresh(emoji(92001, "unchanged", 1), emoji(92002, "changed", 1));
+        Emoji unchanged = Emoji.getByID(92001).orElseThrow(AssertionError::new);
+        Emoji changed = Emoji.getByID(92002).orElseThrow(AssertionError::new);
+
+        refresh(emoji(92001, "unchanged", 1), emoji(92002, "changed", 2));
+
+        assertSame(unchanged, Emoji.getByID(92001).orElseThrow(AssertionError::new));
+        assertNotEquals(changed.getVersion(), Emoji.getByID(92002).orElseThrow(AssertionError::new).getVersion());
+        assertEquals(EmojiCatalog.current().getVersion(), Emoji.getByID(92002).get().getVersion());
+        assertEquals(1, changed.getFaves());
+    }
+
+    @Test
+    public void testChangeListener() {
+        refresh(emoji(93001, "faved", 1), emoji(93002, "deleted", 1));
+
+        List<CatalogChange<Emoji>> changes = new ArrayList<>();
+        CatalogListener listener = new CatalogListener() {
+            @Override
+            public void onEmojiChange(CatalogChange<Emoji> change) {
+                changes.add(change);
+            }
+        };
+        EmojiCatalog.addListener(listener);
+
+        try {
+            refresh(emoji(93001, "faved", 2), emoji(93003, "new", 1));
+            refresh(emoji(93001, "faved", 2), emoji(93003, "new", 1));
+        } finally {
+            EmojiCatalog.removeListener(listener);
+        }
+
+        assertEquals(1, changes.size());
+        CatalogChange<Emoji> change = changes.get(0);
+        assertEquals(93003, change.getAdded().iterator().next().getId());
+        assertEquals(93002, change.getRemoved().iterator().next().getId());
+        assertEquals(1, change.getUpdated().size());
+        CatalogChange.Update<Emoji> update = change.getUpdated().iterator().next();
+        assertEquals(Collections.singleton("faves"), update.getChangedFields());
+        assertEquals(1, update.getPrevious().getFaves());
+        assertEquals(2, update.getCurrent().getFaves());
+        assertFalse(Emoji.getByID(93002).isPresent());
+    }
+
+    @Test
+    public void testInterleavedBatches() {
+        refresh(emoji(93601, "kept", 1), emoji(93602, "dropped", 1));
+
+        List<CatalogChange<Emoji>> changes = new ArrayList<>();
+        CatalogListener listener = new CatalogListener() {
+            @Override
+            public void onEmojiChange(CatalogChange<Emoji> change) {
+                changes.add(change);
+            }
+        };
+        EntityMaterializer.Batch<Emoji> first = Materializers.EMOJI.batch();
+        EntityMaterializer.Batch<Emoji> second = Materializers.EMOJI.batch();
+        EntityMaterializer.Batch<Emoji> firstMerge = Materializers.EMOJI.merge();
+        EntityMaterializer.Batch<Emoji> secondMerge = Materializers.EMOJI.merge();
+
+        first.add(emoji(93601, "kept", 1), 0);
+        first.add(emoji(93603, "added", 1), 1);
+        second.add(emoji(93601, "kept", 1), 0);
+        second.add(emoji(93603, "added", 2), 1);
+        firstMerge.add(emoji(93604, "merged", 1), 0);
+        secondMerge.add(emoji(93605, "also merged", 1), 0);
+        EmojiCatalog.addListener(listener);
+
+        try {
+            first.publish();
+            second.publish();
+            firstMerge.publish();
+            secondMerge.publish();
+        } finally {
+            EmojiCatalog.removeListener(listener);
+        }
+
+        assertEquals(4, changes.size());
+        assertEquals(93603, changes.get(0).getAdded().iterator().next().getId());
+        assertEquals(93602, changes.get(0).getRemoved().iterator().next().getId());
+        assertTrue(changes.get(1).getAdded().isEmpty());
+        assertTrue(changes.get(1).getRemoved().isEmpty());
+        assertEquals(Collections.singleton("faves"),
+                changes.get(1).getUpdated().iterator().next().getChangedFields());
+        assertEquals(93604, changes.get(2).getAdded().iterator().next().getId());
+        assertEquals(93605, changes.get(3).getAdded().iterator().next().getId());
+        assertEquals(1, changes.get(3).getAdded().size());
+        assertEquals(2, Emoji.getByID(93603).orElseThrow(AssertionError::new).getFaves());
+        assertTrue(Emoji.getByID(93604).isPresent());
+        assertTrue(Emoji.getByID(93605).isPresent());
+    }
+
+    @Test
+    public void testFailingListener() {
+        List<Throwable> failures = new ArrayList<>();
+        List<CatalogChange<Emoji>> changes = new ArrayList<>();
+        CatalogListener failing = new CatalogListener() {
+            @Override
+            public void onEmojiChange(CatalogChange<Emoji> change) {
+                throw new IllegalStateException("failing listener");
+            }
+        };
+        CatalogListener listener = new CatalogListener() {
+            @Override
+            public void onEmojiChange(CatalogChange<Emoji> change) {
+                changes.add(change);
+            }
+        };
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> failures.add(e));
+        EmojiCatalog.addListener(failing);
+        EmojiCatalog.addListener(listener);
+
+        try {
+            refresh(emoji(93501, "published", 1));
+        } finally {
+            EmojiCatalog.removeListener(failing);
+            EmojiCatalog.removeListener(listener);
+            thread.setUncaughtExceptionHandler(handler);
+        }
+
+        assertTrue(EmojiCatalog.current().getEmojiByID(93501).isPresent());
+        assertEquals(1, changes.size());
+        assertEquals(1, failures.size());
+        assertEquals("failing listener", failures.get(0).getMessage());
+    }
+
+    @Test
+    public void testCategoryLinks() {
+        refresh(emoji(94001, "linked", 1).put("category", 41), emoji(94002, "moved", 1).put("category", 42));
+        Emoji linked = Emoji.getByID(94001).orElseThrow(AssertionError::new);
+
+        EmojiCatalog unlinked = EmojiCatalog.current();
+
+        assertFalse(linked.getCategory().getPossibleValue().isPresent());
+
+        EntityMaterializer.Batch<EmojiCategory> categories = Materializers.EMOJI_CATEGORY.merge();
+        EmojiCategory category = categories.add(TextNode.valueOf("Linked"), 41);
+
+        categories.publish();
+        PromisedValue<Integer, EmojiCategory> link = linked.getCategory();
+
+        assertSame(category, link.getPossibleValue().orElseThrow(AssertionError::new));
+        assertSame(link, linked.getCategory());
+        assertEquals(Collections.singleton(linked), new HashSet<>(category.getEmojis()));
+
+        refresh(emoji(94001, "linked", 1).put("category", 41), emoji(94002, "moved", 1).put("category", 41));
+        Emoji moved = Emoji.getByID(94002).orElseThrow(AssertionError::new);
+
+        assertSame(link, linked.getCategory());
+        assertSame(category, moved.getCategory().getPossibleValue().orElseThrow(AssertionError::new));
+        assertEquals(2, category.getEmojis().size());
+        assertFalse(unlinked.getEmojiCategoryOf(linked).isPresent());
+        assertSame(category, EmojiCatalog.current().getEmojiCategoryOf(moved).orElseThrow(AssertionError::new));
+    }
+
+    private static void refresh(ObjectNode... emojis) {
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.batch();
+
+        for (int i = 0; i < emojis.length; i++)
+            batch.add(emojis[i], i);
+        batch.publish();
+    }
+
+    private static ObjectNode emoji(int id, String title, int faves) {
+        return JsonNodeFactory.instance.objectNode()
+                .put("id", id)
+                .put("title", title)
+                .put("slug", title)
+                .put("image", "https://emoji.gg/assets/emoji/" + title + ".png")
+                .put("category", 1)
+                .put("faves", faves);
+    }
+}
@@ -4,9 +4,16 @@ import java.util.Collection;
 
 import de.kaleidox.discordemoji.DiscordEmoji;
 import de.kaleidox.discordemoji.model.EmojiCategory;
+import de.kaleidox.discordemoji.model.Materializers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.TextNode;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
 public class EmojiCategoryTest {
     @Test
     public void testRequestAndDeserialize() {
@@ -15,4 +22,23 @@ public class EmojiCategoryTest {
         //System.out.println("categories = " + categories);
         System.out.println("categories.size() = " + categories.size());
     }
+
+    @Test
+    public void testReplaceAll() {
+        Materializers.EMOJI_CATEGORY.materializeAll(new JsonNode[]{
+                TextNode.valueOf("Original Style"), TextNode.valueOf("TV / Movie"), TextNode.valueOf("Meme")
+        });
+        EmojiCategory original = EmojiCategory.getByIndex(0);
+
+        Materializers.EMOJI_CATEGORY.materializeAll(new JsonNode[]{
+                TextNode.valueOf("Original Style"), TextNode.valueOf("Meme")
+        });
+
+        assertSame(original, EmojiCategory.getByIndex(0));
+        assertEquals("Meme", EmojiCategory.getByIndex(1).getName());
+        assertEquals(1, EmojiCategory.getByIndex(1).getIndex());
+        assertEquals(2, EmojiCategory.getAll().size());
+        assertNull(EmojiCategory.getByIndex(2));
+        assertNull(EmojiCategory.getByIndex(-1));
+    }
 }
@@ -0,0 +1,66 @@
+package de.kaleidox.test.discordemoji.rest;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.CompletionException;
+
+import de.kaleidox.discordemoji.rest.EmbeddedServer;
+import de.kaleidox.discordemoji.rest.HttpClientConfig;
+import de.kaleidox.discordemoji.rest.HttpClientStats;
+import de.kaleidox.discordemoji.rest.OkHttpTransport;
+import de.kaleidox.discordemoji.rest.ResponseTooLargeException;
+
+import okio.Okio;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpClientConfigTest {
+    @Test
+    public void testCompressionReuseAndSizeCap() throws IOException {
+        Path directory = Files.createTempDirectory("discordemoji");
+        StringBuilder catalog = new StringBuilder("[");
+
+        for (int i = 0; i < 1000; i++)
+            catalog.append(i == 0 ? "" : ",").append("{\"id\":").append(i).append(",\"title\":\"emoji\"}");
+        Files.write(directory.resolve("catalog.json"), catalog.append(']').toString().getBytes(StandardCharsets.UTF_8));
+
+        try (EmbeddedServer server = new EmbeddedServer(directory);
+             OkHttpTransport transport = new OkHttpTransport()) {
+            URL url = new URL("http://localhost:" + server.getPort() + "/catalog.json");
+
+            assertEquals(catalog.length(), read(transport, url).length());
+            assertEquals(catalog.length(), read(transport, url).length());
+
+            HttpClientStats stats = transport.getStats();
+
+            assertEquals(2, stats.getRequests());
+            assertEquals(1, stats.getConnectionsOpened());
+            assertEquals(1, stats.getConnectionsReused());
+            assertEquals(2, stats.getCompressedResponses());
+            assertEquals(2L * catalog.length(), stats.getBytesDecoded());
+            assertTrue(stats.getBytesReceived() < stats.getBytesDecoded() / 4);
+
+            transport.setConfig(HttpClientConfig.DEFAULT.withCompression(false).withMaxResponseSize(1000));
+
+            try {
+                read(transport, url);
+                fail("Response size cap was not applied");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause().getCause() instanceof ResponseTooLargeException);
+            }
+            assertEquals(2, transport.getStats().getCompressedResponses());
+        }
+    }
+
+    private static String read(OkHttpTransport transport, URL url) {
+        return transport.get(url, Collections.emptyMap(), response -> Okio.buffer(Okio.source(response.getBody()))
+                .readUtf8()).join();
+    }
+}
@@ -0,0 +1,159 @@
+package de.kaleidox.test.discordemoji.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.rest.EmbeddedServer;
+import de.kaleidox.discordemoji.rest.Endpoint;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+import de.kaleidox.discordemoji.rest.Transport;
+import de.kaleidox.discordemoji.rest.TransportFaults;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReplayTransportTest {
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("discordemoji");
+
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_PACKS.url)),
+                ("[{\"id\":93001,\"name\":\"Replayed\",\"slug\":\"replayed\",\"amount\":3,"
+                        + "\"image\":\"https://emoji.gg/assets/packs/replayed.png\","
+                        + "\"download\":\"https://emoji.gg/packs/replayed.zip\"}]")
+                        .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        RestRequestHelper.setTransport(null);
+    }
+
+    @Test
+    public void testReplayRefresh() {
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+
+        Collection<EmojiPack> packs = DiscordEmoji.refreshEmojiPackCache().join();
+
+        assertTrue(packs.stream().anyMatch(pack -> pack.getId() == 93001 && pack.getSize() == 3));
+    }
+
+    @Test
+    public void testMalformedResponseKeepsCache() throws IOException {
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+        DiscordEmoji.refreshEmojiPackCache().join();
+
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_PACKS.url)),
+                ("[{\"id\":93002,\"name\":\"Partial\",\"amount\":1,"
+                        + "\"download\":\"https://emoji.gg/packs/partial.zip\"},null]")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        for (int attempt = 0; attempt < 2; attempt++)
+            try {
+                DiscordEmoji.refreshEmojiPackCache().join();
+                fail("Malformed response was accepted");
+            } catch (CompletionException expected) {
+                assertTrue(EmojiPack.getByID(93001).isPresent());
+                assertFalse(EmojiPack.getByID(93002).isPresent());
+            }
+    }
+
+    @Test(expected = CompletionException.class)
+    public void testOversizedIndex() throws IOException {
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_CATEGORIES.url)),
+                "{\"1\":\"Original Style\",\"99999999999\":\"Oversized\"}".getBytes(StandardCharsets.UTF_8));
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+
+        DiscordEmoji.refreshEmojiCategoryCache().join();
+    }
+
+    @Test
+    public void testReplayNotModified() {
+        RestRequestHelper.setTransport(new ReplayTransport(directory));
+        RestRequestHelper.invalidate(Endpoint.LIST_ALL_PACKS);
+
+        Optional<String> first = RestRequestHelper.getIfModified(Endpoint.LIST_ALL_PACKS, body -> "read").join();
+        Optional<String> second = RestRequestHelper.getIfModified(Endpoint.LIST_ALL_PACKS, body -> "read").join();
+
+        assertEquals(Optional.of("read"), first);
+        assertFalse(second.isPresent());
+    }
+
+    @Test
+    public void testNotModifiedByHash() {
+        byte[][] content = {"[1,2,3]".getBytes(StandardCharsets.UTF_8)};
+
+        RestRequestHelper.setTransport(new Transport() {
+            @Override
+            public <T> CompletableFuture<T> get(URL url, Map<String, String> headers, ResponseHandler<T> handler) {
+                CompletableFuture<T> future = new CompletableFuture<>();
+
+                try {
+                    future.complete(handler.handle(new Response(200, Collections.emptyMap(),
+                            new ByteArrayInputStream(content[0]))));
+                } catch (IOException e) {
+                    future.completeExceptionally(e);
+                }
+                return future;
+            }
+        });
+        RestRequestHelper.invalidate(Endpoint.LIST_WEBSITE_STATS);
+
+        assertTrue(RestRequestHelper.getIfModified(Endpoint.LIST_WEBSITE_STATS, InputStream::read).join()
+                .isPresent());
+        assertFalse(RestRequestHelper.getIfModified(Endpoint.LIST_WEBSITE_STATS, stream -> "ignored").join()
+                .isPresent());
+
+        content[0] = "[1,2,4]".getBytes(StandardCharsets.UTF_8);
+        assertTrue(RestRequestHelper.getIfModified(Endpoint.LIST_WEBSITE_STATS, InputStream::read).join()
+                .isPresent());
+        RestRequestHelper.invalidate(Endpoint.LIST_WEBSITE_STATS);
+    }
+
+    @Test
+    public void testEmbeddedServerFaults() throws IOException {
+        try (EmbeddedServer server = new EmbeddedServer(directory)) {
+            RestRequestHelper.setTransport(server.transport());
+
+            String body = RestRequestHelper.get(Endpoint.LIST_ALL_PACKS).join();
+
+            assertTrue(body.contains("Replayed"));
+
+            server.setFaults(TransportFaults.NONE.withLatency(50, 0, TimeUnit.MILLISECONDS));
+            long started = System.nanoTime();
+            RestRequestHelper.get(Endpoint.LIST_ALL_PACKS).join();
+            assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(50));
+
+            server.setFaults(TransportFaults.NONE.withErrors(1, 0));
+            try {
+                RestRequestHelper.get(Endpoint.LIST_ALL_PACKS).join();
+                fail("Injected connection failure was not reported");
+            } catch (CompletionException expected) {
+                // injected
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package de.kaleidox.test.discordemoji.rest;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.kaleidox.discordemoji.DiscordEmoji;
+import de.kaleidox.discordemoji.model.EmojiPack;
+import de.kaleidox.discordemoji.rest.Endpoint;
+import de.kaleidox.discordemoji.rest.HttpStatusException;
+import de.kaleidox.discordemoji.rest.ReplayTransport;
+import de.kaleidox.discordemoji.rest.RequestPolicy;
+import de.kaleidox.discordemoji.rest.RestRequestHelper;
+import de.kaleidox.discordemoji.rest.Transport;
+import de.kaleidox.discordemoji.rest.TransportFaults;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestPolicyTest {
+    private final AtomicInteger attempts = new AtomicInteger(0);
+    private ReplayTransport replay;
+
+    @Before
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("discordemoji");
+
+        Files.write(directory.resolve(ReplayTransport.getFileName(Endpoint.LIST_ALL_PACKS.url)),
+                ("[{\"id\":98001,\"name\":\"Guarded\",\"slug\":\"guarded\",\"amount\":1,"
+                        + "\"image\":\"https://emoji.gg/assets/packs/guarded.png\","
+                        + "\"download\":\"https://emoji.gg/packs/guarded.zip\"}]")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        replay = new ReplayTransport(directory);
+        RestRequestHelper.setTransport(new Transport() {
+            @Override
+            public <T> CompletableFuture<T> get(URL url, Map<String, String> headers, ResponseHandler<T> handler) {
+                attempts.incrementAndGet();
+                return replay.get(url, headers, handler);
+            }
+        });
+        RestRequestHelper.invalidate(Endpoint.LIST_ALL_PACKS);
+    }
+
+    @After
+    public void tearDown() {
+        RestRequestHelper.setTransport(null);
+        replay.close();
+        RestRequestHelper.setRequestPolicy(Endpoint.LIST_ALL_PACKS, RequestPolicy.DEFAULT);
+    }
+
+    @Test
+    public void testRetryServerErrors() {
+        RestRequestHelper.setRequestPolicy(Endpoint.LIST_ALL_PACKS, RequestPolicy.DEFAULT
+                .withRetries(3, 1, 5, TimeUnit.MILLISECONDS));
+        replay.setFaults(TransportFaults.NONE.withErrors(1, 503));
+
+        assertEquals(503, failure(Endpoint.LIST_ALL_PACKS).getStatus());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testNoRetryOnClientErrors() {
+        RestRequestHelper.setRequestPolicy(Endpoint.LIST_ALL_PACKS, RequestPolicy.DEFAULT
+                .withRetries(3, 1, 5, TimeUnit.MILLISECONDS));
+        replay.setFaults(TransportFaults.NONE.withErrors(1, 404));
+
+        assertEquals(404, failure(Endpoint.LIST_ALL_PACKS).getStatus());
+        assertEquals(1, attempts.get());
+        assertFalse(RestRequestHelper.isCircuitOpen(Endpoint.LIST_ALL_PACKS));
+    }
+
+    @Test
+    public void testNoRetryOnRejectedResponses() {
+        RestRequestHelper.setRequestPolicy(Endpoint.LIST_ALL_PACKS, RequestPolicy.DEFAULT
+                .withRetries(3, 1, 5, TimeUnit.MILLISECONDS)
+                .withCircuitBreaker(1, 1, TimeUnit.HOURS));
+
+        try {
+            RestRequestHelper.get(Endpoint.LIST_ALL_PACKS, body -> {
+                throw new IOException("Rejected");
+            }).join();
+            fail("Rejected response was not reported");
+        } catch (CompletionException expected) {
+            // rejected
+        }
+
+        assertEquals(1, attempts.get());
+        assertFalse(RestRequestHelper.isCircuitOpen(Endpoint.LIST_ALL_PACKS));
+    }
+
+    @Test
+    public void testCircuitFallsBackToCache() {
+        Collection<EmojiPack> cached = DiscordEmoji.refreshEmojiPackCache().join();
+
+        RestRequestHelper.setRequestPolicy(Endpoint.LIST_ALL_PACKS, RequestPolicy.DEFAULT
+                .withRetries(1, 0, 0, TimeUnit.MILLISECONDS)
+                .withCircuitBreaker(2, 1, TimeUnit.HOURS));
+        replay.setFaults(TransportFaults.NONE.withErrors(1, 0));
+
+        for (int i = 0; i < 2; i++)
+            try {
+                RestRequestHelper.get(Endpoint.LIST_ALL_PACKS).join();
+                fail("Injected connection failure was not reported");
+            } catch (CompletionException expected) {
+                // injected
+            }
+        attempts.set(0);
+
+        assertTrue(RestRequestHelper.isCircuitOpen(Endpoint.LIST_ALL_PACKS));
+        assertEquals(cached.size(), DiscordEmoji.refreshEmojiPackCache().join().size());
+        assertEquals(0, attempts.get());
+    }
+
+    @Test
+    public void testRateLimit() {
+        RestRequestHelper.setRequestPolicy(Endpoint.LIST_ALL_PACKS, RequestPolicy.DEFAULT.withRateLimit(20, 1));
+
+        long started = System.nanoTime();
+        for (int i = 0; i < 5; i++)
+            RestRequestHelper.get(Endpoint.LIST_ALL_PACKS).join();
+
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    private static HttpStatusException failure(Endpoint endpoint) {
+        try {
+            RestRequestHelper.get(endpoint).join();
+        } catch (CompletionException e) {
+            for (Throwable cause = e; cause != null; cause = cause.getCause())
+                if (cause instanceof HttpStatusException)
+                    return (HttpStatusException) cause;
+            throw e;
+        }
+        throw new AssertionError("Request did not fail");
+    }
+}
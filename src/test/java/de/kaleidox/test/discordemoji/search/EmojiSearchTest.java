@@ -0,0 +1,61 @@
+package de.kaleidox.test.discordemoji.search;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import de.kaleidox.discordemoji.model.Emoji;
+import de.kaleidox.discordemoji.model.EntityMaterializer;
+import de.kaleidox.discordemoji.model.Materializers;
+import de.kaleidox.discordemoji.search.EmojiSearch;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EmojiSearchTest {
+    @Test
+    public void testRankedFuzzySearch() {
+        emoji(98001, "Quokka Happy", 4342, 5000);
+
+        try (EmojiSearch search = EmojiSearch.create()) {
+            emoji(98002, "Quokka Sad", 4342, 10);
+            emoji(98003, "Happy Quokka Dance", 4343, 20);
+
+            assertEquals(98001, (int) ids(search.search("quoka hapy", 3)).get(0));
+            assertEquals(Arrays.asList(98003), ids(search.search("quokka dance", 4343, 5)));
+
+            search.setMinSimilarity(0.5);
+            search.setFavesWeight(0);
+            assertEquals(Arrays.asList(98002, 98001), ids(search.search("quokka", 4342, 5)));
+            search.setFavesWeight(1);
+            assertEquals(Arrays.asList(98001, 98002), ids(search.search("quokka", 4342, 5)));
+
+            emoji(98001, "Wombat Angry", 4342, 10);
+
+            assertEquals(Arrays.asList(98001), ids(search.search("wombat angry", 1)));
+            assertEquals(Arrays.asList(98002), ids(search.search("quokka", 4342, 5)));
+            assertEquals(Arrays.asList(98002), ids(search.search("quokka", 4342, Integer.MAX_VALUE)));
+            assertTrue(search.search("", 5).isEmpty());
+        }
+    }
+
+    private static void emoji(int id, String title, int category, int faves) {
+        EntityMaterializer.Batch<Emoji> batch = Materializers.EMOJI.merge();
+
+        batch.add(JsonNodeFactory.instance.objectNode()
+                .put("id", id)
+                .put("title", title)
+                .put("slug", id + "-" + title.toLowerCase().replace(' ', '-'))
+                .put("image", "https://emoji.gg/assets/emoji/" + id + ".png")
+                .put("category", category)
+                .put("faves", faves), 0);
+        batch.publish();
+    }
+
+    private static List<Integer> ids(List<Emoji> emojis) {
+        return emojis.stream().map(Emoji::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,67 @@
+package de.kaleidox.test.util;
+
+import java.util.Collection;
+
+import de.kaleidox.util.IntIndex;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IntIndexTest {
+    @Test
+    public void testDenseAndOverflowKeys() {
+        IntIndex<String> index = new IntIndex<>();
+
+        index.put(1, "one");
+        index.put(5000, "five thousand");
+        index.put(-3, "negative");
+        index.put(Integer.MAX_VALUE, "max");
+
+        assertEquals("one", index.get(1));
+        assertEquals("five thousand", index.get(5000));
+        assertEquals("negative", index.get(-3));
+        assertEquals("max", index.get(Integer.MAX_VALUE));
+        assertNull(index.get(2));
+        assertNull(index.get(IntIndex.MAX_DENSE_KEY));
+        assertEquals(4, index.size());
+
+        Collection<String> values = index.values();
+        assertEquals(4, values.size());
+        assertTrue(values.contains("max"));
+    }
+
+    @Test
+    public void testSparseKeysMoveIntoDenseArray() {
+        IntIndex<Integer> index = new IntIndex<>();
+
+        index.put(IntIndex.MAX_DENSE_KEY, IntIndex.MAX_DENSE_KEY);
+        index.put(20000, 20000);
+        for (int i = 0; i < 20000; i++)
+            index.put(i, i);
+
+        assertEquals(20002, index.size());
+        assertEquals(20002, index.values().size());
+        assertEquals(20000, (int) index.get(20000));
+        assertEquals(IntIndex.MAX_DENSE_KEY, (int) index.get(IntIndex.MAX_DENSE_KEY));
+        assertEquals(20000, (int) index.remove(20000));
+        assertNull(index.get(20000));
+        assertEquals(20001, index.values().size());
+    }
+
+    @Test
+    public void testComputeAndRemove() {
+        IntIndex<String> index = new IntIndex<>();
+
+        assertEquals("a", index.compute(7, old -> old == null ? "a" : old + "b"));
+        assertEquals("ab", index.compute(7, old -> old == null ? "a" : old + "b"));
+        assertEquals(1, index.size());
+
+        assertEquals("ab", index.remove(7));
+        assertNull(index.get(7));
+        assertNull(index.remove(7));
+        assertEquals(0, index.size());
+    }
+}